@@ -0,0 +1,61 @@
+package com.wynprice.secretroomsmod.render.fakemodels;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.minecraft.client.renderer.block.model.BakedQuad;
+
+/**
+ * Benchmarks {@link SRMBakedQuadRetextured} against {@link LegacySRMBakedQuadRetextured}. Each op retextures every face of every box in {@link SyntheticQuads#BOXES}
+ * with the full block face on the same side, like a secret block mirroring a full block would. Run with {@code gradlew jmh}
+ * @author Wyn Price
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SRMBakedQuadRetexturedBenchmark
+{
+	private BakedQuad[] modelQuads;
+	private BakedQuad[] textureQuads;
+
+	@Setup
+	public void setup()
+	{
+		List<BakedQuad> quads = SyntheticQuads.allQuads(SyntheticQuads.sprite("test:model", 0, 0));
+		modelQuads = quads.toArray(new BakedQuad[0]);
+		textureQuads = new BakedQuad[modelQuads.length];
+		BakedQuad[] fullBlock = SyntheticQuads.allQuads(SyntheticQuads.sprite("test:texture", 32, 48)).subList(0, 6).toArray(new BakedQuad[0]);
+		for(int i = 0; i < modelQuads.length; i++)
+			textureQuads[i] = fullBlock[modelQuads[i].getFace().getIndex()];
+	}
+
+	@Benchmark
+	public void legacy(Blackhole blackhole)
+	{
+		for(int i = 0; i < modelQuads.length; i++)
+			blackhole.consume(new LegacySRMBakedQuadRetextured(modelQuads[i], textureQuads[i], modelQuads[i].getFace()));
+	}
+
+	@Benchmark
+	public void current(Blackhole blackhole)
+	{
+		for(int i = 0; i < modelQuads.length; i++)
+			blackhole.consume(new SRMBakedQuadRetextured(modelQuads[i], textureQuads[i], modelQuads[i].getFace()));
+	}
+}
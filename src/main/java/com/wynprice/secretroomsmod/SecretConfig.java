@@ -1,5 +1,7 @@
 package com.wynprice.secretroomsmod;
 
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteEligibility;
+
 import net.minecraftforge.common.config.Config;
 import net.minecraftforge.common.config.ConfigManager;
 import net.minecraftforge.fml.client.event.ConfigChangedEvent;
@@ -79,6 +81,7 @@ public final class SecretConfig {
     public static void onConfigChanged(ConfigChangedEvent.OnConfigChangedEvent event) {
         if(event.getConfigID() != null && event.getConfigID().equals(SecretRooms5.MODID)) {
             ConfigManager.sync(SecretRooms5.MODID, Config.Type.INSTANCE);
+            EnergizedPasteEligibility.invalidate();
         }
     }
     
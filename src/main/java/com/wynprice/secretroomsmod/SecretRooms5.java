@@ -4,8 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.wynprice.secretroomsmod.handler.EnergizedPasteHandler;
-import com.wynprice.secretroomsmod.network.SecretNetwork;
-import com.wynprice.secretroomsmod.network.packets.MessagePacketSyncEnergizedPaste;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteEligibility;
 import com.wynprice.secretroomsmod.proxy.CommonProxy;
 
 import net.minecraft.command.CommandBase;
@@ -19,6 +18,7 @@ import net.minecraftforge.fml.common.Mod.EventHandler;
 import net.minecraftforge.fml.common.Mod.Instance;
 import net.minecraftforge.fml.common.SidedProxy;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLInterModComms;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
@@ -63,6 +63,12 @@ public class SecretRooms5
     	proxy.init(event);
     }
     
+    @EventHandler
+    public void onIMC(FMLInterModComms.IMCEvent event) {
+    	for(FMLInterModComms.IMCMessage message : event.getMessages())
+    		EnergizedPasteEligibility.onIMCMessage(message);
+    }
+    
     @EventHandler
     public void postInit(FMLPostInitializationEvent event) {
     	proxy.postInit(event);
@@ -70,6 +76,6 @@ public class SecretRooms5
     
     @EventHandler
     public void onServerLoaded(FMLServerStartingEvent event) {
-    	event.registerServerCommand(new CommandBase() {@Override public int getRequiredPermissionLevel(){return 2;}@Override public String getUsage(ICommandSender sender) {return "Resets the energized blocks";}@Override public String getName() {return "resetenergized";}@Override public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {EnergizedPasteHandler.getEnergized_map().clear();SecretNetwork.sendToAll(new MessagePacketSyncEnergizedPaste(EnergizedPasteHandler.saveToNBT(), null));}});
+    	event.registerServerCommand(new CommandBase() {@Override public int getRequiredPermissionLevel(){return 2;}@Override public String getUsage(ICommandSender sender) {return "Resets the energized blocks";}@Override public String getName() {return "resetenergized";}@Override public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {EnergizedPasteHandler.resetAll(server);}});
     }
 }
@@ -3,6 +3,7 @@ package com.wynprice.secretroomsmod.base;
 import java.util.List;
 import java.util.Random;
 
+import com.wynprice.secretroomsmod.handler.SecretPressurePlateIndex;
 import com.wynprice.secretroomsmod.tileentity.TileEntitySecretPressurePlate;
 
 import net.minecraft.block.material.Material;
@@ -34,12 +35,6 @@ public abstract class BaseFakePressurePlate extends BaseFakeBlock
         this.setDefaultState(this.blockState.getBaseState().withProperty(POWER, Integer.valueOf(0)));
 	}
 	
-	@Override
-	public void onEntityWalk(World worldIn, BlockPos pos, Entity entityIn) 
-	{
-		calculateState(worldIn, pos);
-	}
-	
 	@Override
 	public boolean canCreatureSpawn(IBlockState state, IBlockAccess world, BlockPos pos, SpawnPlacementType type) {
 		return false;
@@ -50,21 +45,32 @@ public abstract class BaseFakePressurePlate extends BaseFakeBlock
 		return getState(world, pos).getBlock().canBeConnectedTo(world, pos, facing);
 	}
 	
+	/**
+	 * Works out the plates power from the entities on it. The plates dont tick, this is called by the {@link SecretPressurePlateIndex} when an entity gets on or off the plate,
+	 * and while powered the plate polls with scheduled ticks, until theres nothing left on it
+	 * @param worldIn the world
+	 * @param pos the plates position
+	 */
 	public void calculateState(World worldIn, BlockPos pos)
 	{
+		if(worldIn.isRemote)
+			return;
+		IBlockState state = worldIn.getBlockState(pos);
+		if(state.getBlock() != this)
+			return;
 		List<Entity> entityList = worldIn.getEntitiesWithinAABB(Entity.class, new AxisAlignedBB(pos.getX(), pos.getY(), pos.getZ(), pos.getX() + 1f, pos.getY() + 1.1f, pos.getZ() + 1f));
 		int level = MathHelper.clamp(getLevel(worldIn, pos, entityList), 0, 15);
-		if((level == 0 || worldIn.getBlockState(pos).getValue(POWER) == 0) && level != worldIn.getBlockState(pos).getValue(POWER))
-	        worldIn.playSound((EntityPlayer)null, pos, level == 0 ? soundOff() : soundOn(), SoundCategory.BLOCKS, 0.3F, level == 0 ?  0.75F : 0.90000004F);
-
-		if(worldIn.getBlockState(pos).getValue(POWER) != entityList.size())
+		int oldLevel = state.getValue(POWER);
+		if(level != oldLevel)
 		{
-			worldIn.setBlockState(pos, setRedstoneStrength(worldIn.getBlockState(pos), level), 3);
+			if(level == 0 || oldLevel == 0)
+		        worldIn.playSound((EntityPlayer)null, pos, level == 0 ? soundOff() : soundOn(), SoundCategory.BLOCKS, 0.3F, level == 0 ?  0.75F : 0.90000004F);
+			worldIn.setBlockState(pos, setRedstoneStrength(state, level), 3);
 			worldIn.notifyNeighborsOfStateChange(pos, this, false);
 	        worldIn.notifyNeighborsOfStateChange(pos.down(), this, false);
 		}
-		if(worldIn.getBlockState(pos).getValue(POWER) > 0)
-			worldIn.scheduleUpdate(new BlockPos(pos), this, this.tickRate(worldIn));
+		if(level > 0)
+			worldIn.scheduleUpdate(pos.toImmutable(), this, this.tickRate(worldIn));
 	}
 	
 	public void randomTick(World worldIn, BlockPos pos, IBlockState state, Random random)
@@ -79,7 +85,7 @@ public abstract class BaseFakePressurePlate extends BaseFakeBlock
     public void updateTick(World worldIn, BlockPos pos, IBlockState state, Random rand)
     {
         if (!worldIn.isRemote && state.getValue(POWER) > 0)
-        	onEntityWalk(worldIn, pos, null);
+        	calculateState(worldIn, pos);
     }
 	
 	protected abstract int getLevel(World world, BlockPos pos, List<Entity> entityList);
@@ -3,6 +3,7 @@ package com.wynprice.secretroomsmod.base;
 import com.wynprice.secretroomsmod.SecretConfig;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
+import com.wynprice.secretroomsmod.handler.MirrorStateCache;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.SoundType;
@@ -54,7 +55,7 @@ public class SecretItemBlock extends ItemBlock
     			mirrorState = Blocks.STONE.getDefaultState();
     		}
             
-            ISecretTileEntity.getMap(worldIn).put(pos, mirrorState);
+            MirrorStateCache.put(worldIn, pos, mirrorState);
             
             if (placeBlockAt(itemstack, player, worldIn, pos, facing, hitX, hitY, hitZ, iblockstate1))
             {
@@ -66,7 +67,7 @@ public class SecretItemBlock extends ItemBlock
                 worldIn.playSound(player, pos, soundtype.getPlaceSound(), SoundCategory.BLOCKS, (soundtype.getVolume() + 1.0F) / 2.0F, soundtype.getPitch() * 0.8F);
                 itemstack.shrink(1);
             } else {
-                ISecretTileEntity.getMap(worldIn).remove(pos);
+                MirrorStateCache.remove(worldIn, pos);
             }
 
             return EnumActionResult.SUCCESS;
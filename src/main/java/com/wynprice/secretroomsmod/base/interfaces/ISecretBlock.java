@@ -1,11 +1,10 @@
 package com.wynprice.secretroomsmod.base.interfaces;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
 import com.wynprice.secretroomsmod.SecretConfig;
-import com.wynprice.secretroomsmod.handler.ParticleHandler;
+import com.wynprice.secretroomsmod.handler.MirrorStateCache;
 import com.wynprice.secretroomsmod.render.FakeBlockAccess;
 import com.wynprice.secretroomsmod.render.RenderStateUnlistedProperty;
 import com.wynprice.secretroomsmod.render.fakemodels.FakeBlockModel;
@@ -250,11 +249,6 @@ public interface ISecretBlock extends ITileEntityProvider
 		return getState(worldIn, pos).collisionRayTrace(worldIn, pos, start, end);
 	}
 	
-	/**
-	 * A list of all ISecretTileEntities. Used to get Material and things like that
-	 */
-	public static final ArrayList<TileEntity> ALL_SECRET_TILE_ENTITIES = new ArrayList<>();
-	
 	/**
 	 * Used as an override to SRM blocks. Used to run {@link Block#isSideSolid(IBlockState, IBlockAccess, BlockPos, EnumFacing)} on the mirrored state
 	 * @param base_state The base state, getActualState should be called first
@@ -409,9 +403,9 @@ public interface ISecretBlock extends ITileEntityProvider
 	@SideOnly(Side.CLIENT)
 	default boolean addDestroyEffects(World world, BlockPos pos, ParticleManager manager) 
 	{
-		if(ParticleHandler.BLOCKBRAKERENDERMAP.get(pos) != null)
+		IBlockState state = MirrorStateCache.remove(world, pos); //The block is broken, so the state isnt needed after this
+		if(state != null)
 		{
-			IBlockState state = ParticleHandler.BLOCKBRAKERENDERMAP.get(pos);
 			try
 			{
 				state = state.getActualState(world, pos);
@@ -0,0 +1,46 @@
+package com.wynprice.secretroomsmod.base.interfaces;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * The interface for other mods blocks to decide how they work with Energized Paste. Replaces the old {@code SRMcanBlockBeMirrored}, {@code SRMcanBlockBeReplaced} and {@code SRMdoesTileEntityOptIn} methods.
+ * <br>Returning true from a method allows the block even if its in the config blacklist. Returning false leaves it up to the config.
+ * <br>Mods that cant depend on SRM can instead send an IMC message to {@code secretroomsmod}, with the key {@code mirrorable}, {@code replaceable} or {@code tileEntityOptIn} and the registry name of the block as the value. This always allows the block.
+ * @author Wyn Price
+ *
+ */
+public interface ISecretMirrorable
+{
+	/**
+	 * @param world the world
+	 * @param state the state
+	 * @param pos the position
+	 * @return true if the block can be used to be rendered on other blocks
+	 */
+	default boolean canBlockBeMirrored(World world, IBlockState state, BlockPos pos) {
+		return false;
+	}
+
+	/**
+	 * @param world the world
+	 * @param state the state
+	 * @param pos the position
+	 * @return true if the block can have its rendering changed to another block
+	 */
+	default boolean canBlockBeReplaced(World world, IBlockState state, BlockPos pos) {
+		return false;
+	}
+
+	/**
+	 * Only used for blocks with tile entities, as they cant be mirrored unless they opt in
+	 * @param world the world
+	 * @param state the state
+	 * @param pos the position
+	 * @return true if the block with a tile entity can be used to be rendered on other blocks
+	 */
+	default boolean doesTileEntityOptIn(World world, IBlockState state, BlockPos pos) {
+		return false;
+	}
+}
@@ -3,7 +3,6 @@ package com.wynprice.secretroomsmod.base.interfaces;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.util.HashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -11,6 +10,7 @@ import javax.annotation.Nullable;
 import org.apache.commons.lang3.tuple.Pair;
 
 import com.wynprice.secretroomsmod.SecretRooms5;
+import com.wynprice.secretroomsmod.handler.MirrorStateCache;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.ITileEntityProvider;
@@ -28,33 +28,12 @@ import net.minecraftforge.fml.common.FMLCommonHandler;
 
 /**
  * An interface for all TileEntities for SRM blocks in implement
- * Extends {@link ITickable} as all SRM blocks have TileEntities. 
- * <br>Not needed but means,
- * <br>{@code public class SRMBlock implements ISecretTileEntity, ITickable}
- * <br>becomes:
- * <br>{@code public class SRMBlock implements ISecretTileEntity}
+ * <br>This does not extend {@link ITickable}, as most SRM tile entities have nothing to do each tick. The ones that do (like daylight sensors) implement it themselves.
  * @author Wyn Price
  *
  */
-public interface ISecretTileEntity extends ITickable
+public interface ISecretTileEntity
 {
-	/**
-	 * Used as a map to hold info for when the TileEntity isn't even in place. 
-	 */
-	static final HashMap<Integer, HashMap<BlockPos, IBlockState>> RENDER_MAP = new HashMap<>();
-		
-	/**
-	 * Used to get the Correct HashMap for the World
-	 * @param world the current world
-	 * @return The correct map for the worlds dimension, or a new Map if it dosnt exist
-	 */
-	public static HashMap<BlockPos, IBlockState> getMap(World world)
-	{
-		if(!RENDER_MAP.containsKey(world.provider.getDimension()))
-			RENDER_MAP.put(world.provider.getDimension(), new HashMap<>());
-		return RENDER_MAP.get(world.provider.getDimension());
-	}
-	
 	/**
 	 * Used to set the mirrored state to the block. Can be used only once. Will be locked after one use
 	 * @param mirrorState The state to set the block to
@@ -92,7 +71,9 @@ public interface ISecretTileEntity extends ITickable
 	 */
 	public static IBlockState getMirrorState(World world, BlockPos pos)
 	{		
-		IBlockState blockstate = getMap(world).get(pos) == null && world.getTileEntity(pos) instanceof ISecretTileEntity ? ((ISecretTileEntity)world.getTileEntity(pos)).getMirrorStateSafely() : getMap(world).get(pos);
+		IBlockState blockstate = MirrorStateCache.get(world, pos);
+		if(blockstate == null && world.getTileEntity(pos) instanceof ISecretTileEntity)
+			blockstate = ((ISecretTileEntity)world.getTileEntity(pos)).getMirrorStateSafely();
 		return blockstate == null ? Blocks.STONE.getDefaultState() : blockstate;
 	}
 	
@@ -111,14 +92,8 @@ public interface ISecretTileEntity extends ITickable
 			returnState = getMirrorState((World)access, pos);
 		} else if(access.getTileEntity(pos) != null && access.getTileEntity(pos).getWorld() != null) {
 			returnState = getMirrorState(access.getTileEntity(pos).getWorld(), pos);
-		} else { //Last resort
-			for(int dim : RENDER_MAP.keySet()) {
-				if(FMLCommonHandler.instance().getMinecraftServerInstance() == null) {
-					returnState = getMirrorState(SecretRooms5.proxy.getPlayer().world, pos);
-				} else if(FMLCommonHandler.instance().getMinecraftServerInstance().getWorld(dim) == access) {
-					returnState = getMirrorState(FMLCommonHandler.instance().getMinecraftServerInstance().getWorld(dim), pos);
-				}
-			}
+		} else if(FMLCommonHandler.instance().getMinecraftServerInstance() == null && SecretRooms5.proxy.getPlayer() != null) { //Last resort
+			returnState = getMirrorState(SecretRooms5.proxy.getPlayer().world, pos);
 		}
 		return returnState == null ? Blocks.STONE.getDefaultState() : returnState;
 		
@@ -187,9 +162,6 @@ public interface ISecretTileEntity extends ITickable
 			mirrorState = Blocks.STONE.getDefaultState();
 		}
 		
-		if(!ISecretBlock.ALL_SECRET_TILE_ENTITIES.contains(this)) {
-			ISecretBlock.ALL_SECRET_TILE_ENTITIES.add((TileEntity) this);
-		}
 		return new TileEntityData().setMirroredState(mirrorState).setLocked(locked);
 	}
 	
@@ -212,6 +184,40 @@ public interface ISecretTileEntity extends ITickable
 		nbt.setBoolean("locked", data.isLocked());
 		compound.setTag("SecretRoomsMod", nbt);
 	}
+	
+	/**
+	 * Writes the data the client needs to a new, slim compound. Only the position, the mirrored state id and if its locked are written, 
+	 * so things like inventories arnt sent with the chunk data. Inventories are synced through their containers
+	 * @param data The data to write
+	 * @return The compound, used for {@link TileEntity#getUpdateTag()} and {@link TileEntity#getUpdatePacket()}
+	 */
+	default public NBTTagCompound writeSyncTag(TileEntityData data) {
+		TileEntity tileEntity = (TileEntity)this;
+		NBTTagCompound compound = new NBTTagCompound();
+		ResourceLocation key = TileEntity.getKey(tileEntity.getClass());
+		if(key != null) {
+			compound.setString("id", key.toString());
+		}
+		compound.setInteger("x", tileEntity.getPos().getX());
+		compound.setInteger("y", tileEntity.getPos().getY());
+		compound.setInteger("z", tileEntity.getPos().getZ());
+		compound.setInteger("MirroredStateId", Block.getStateId(data.getMirroredState() == null ? Blocks.STONE.getDefaultState() : data.getMirroredState()));
+		compound.setBoolean("locked", data.isLocked());
+		return compound;
+	}
+	
+	/**
+	 * Reads the compound written by {@link #writeSyncTag(TileEntityData)}
+	 * @param compound The compound
+	 * @return The {@link TileEntityData} containing the infomation for the SRM tileEntity
+	 */
+	default public TileEntityData readSyncTag(NBTTagCompound compound) {
+		IBlockState mirrorState = Block.getStateById(compound.getInteger("MirroredStateId"));
+		if(mirrorState.getBlock() instanceof ISecretBlock) {
+			mirrorState = Blocks.STONE.getDefaultState();
+		}
+		return new TileEntityData().setMirroredState(mirrorState).setLocked(compound.getBoolean("locked"));
+	}
 
 
 }
@@ -3,11 +3,10 @@ package com.wynprice.secretroomsmod.blocks;
 import java.util.Collection;
 import java.util.List;
 
-import com.wynprice.secretroomsmod.SecretRooms5;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
-import com.wynprice.secretroomsmod.render.fakemodels.FakeBlockModel;
 import com.wynprice.secretroomsmod.render.fakemodels.TrueSightFaceDiffrentModel;
 import com.wynprice.secretroomsmod.render.fakemodels.TrueSightModel;
+import com.wynprice.secretroomsmod.render.fakemodels.TrueSightModelRegistry;
 import com.wynprice.secretroomsmod.tileentity.TileEntitySecretDispenser;
 
 import net.minecraft.block.Block;
@@ -32,7 +31,6 @@ import net.minecraft.tileentity.TileEntityDispenser;
 import net.minecraft.util.BlockRenderLayer;
 import net.minecraft.util.EnumBlockRenderType;
 import net.minecraft.util.EnumFacing;
-import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.RayTraceResult;
@@ -63,7 +61,7 @@ public class SecretDispenser extends BlockDispenser implements ISecretBlock
 	@SideOnly(Side.CLIENT)
 	@Override
 	public TrueSightModel phaseTrueModel(TrueSightModel model) {
-		return new TrueSightFaceDiffrentModel(model, FakeBlockModel.getModel(new ResourceLocation(SecretRooms5.MODID, "block/ghost_block")));
+		return new TrueSightFaceDiffrentModel(model, TrueSightModelRegistry.getGhostModel());
 	}
 	
 	@Override
@@ -1,13 +1,12 @@
 package com.wynprice.secretroomsmod.blocks;
 
 import com.wynprice.secretroomsmod.SecretBlocks;
-import com.wynprice.secretroomsmod.SecretRooms5;
 import com.wynprice.secretroomsmod.base.BaseFakeBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
-import com.wynprice.secretroomsmod.render.fakemodels.FakeBlockModel;
 import com.wynprice.secretroomsmod.render.fakemodels.TrueSightFaceDiffrentModel;
 import com.wynprice.secretroomsmod.render.fakemodels.TrueSightModel;
+import com.wynprice.secretroomsmod.render.fakemodels.TrueSightModelRegistry;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockDirectional;
@@ -20,7 +19,6 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.EntityLivingBase;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.EnumHand;
-import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraftforge.common.property.ExtendedBlockState;
@@ -42,7 +40,7 @@ public class SecretGate extends BaseFakeBlock
 	@SideOnly(Side.CLIENT)
 	@Override
 	public TrueSightModel phaseTrueModel(TrueSightModel model) {
-		return new TrueSightFaceDiffrentModel(model, FakeBlockModel.getModel(new ResourceLocation(SecretRooms5.MODID, "block/ghost_block")));
+		return new TrueSightFaceDiffrentModel(model, TrueSightModelRegistry.getGhostModel());
 	}
 	
 	@Override
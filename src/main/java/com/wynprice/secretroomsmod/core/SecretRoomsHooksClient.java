@@ -9,6 +9,7 @@ import com.wynprice.secretroomsmod.SecretCompatibility;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
 import com.wynprice.secretroomsmod.handler.EnergizedPasteHandler;
+import com.wynprice.secretroomsmod.handler.SecretTileEntityRegistry;
 import com.wynprice.secretroomsmod.render.FakeBlockAccess;
 import com.wynprice.secretroomsmod.render.FakeChunkCache;
 import com.wynprice.secretroomsmod.render.fakemodels.SecretBlockModel;
@@ -17,14 +18,16 @@ import net.minecraft.block.Block;
 import net.minecraft.block.state.BlockStateContainer;
 import net.minecraft.block.state.IBlockProperties;
 import net.minecraft.block.state.IBlockState;
-import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.BlockModelRenderer;
 import net.minecraft.client.renderer.BlockRendererDispatcher;
 import net.minecraft.client.renderer.block.model.IBakedModel;
+import net.minecraft.client.renderer.chunk.RenderChunk;
 import net.minecraft.entity.Entity;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ChunkCache;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
 import net.minecraftforge.common.property.IExtendedBlockState;
@@ -34,6 +37,24 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 @SideOnly(Side.CLIENT)
 public class SecretRoomsHooksClient {
 	
+	/**
+	 * The FakeBlockAccess used by each chunk render thread, so one isnt made for every secret block. The base is cleared after every use, so the threads dont keep the world loaded
+	 */
+	private static final ThreadLocal<FakeBlockAccess> FAKE_BLOCK_ACCESS = ThreadLocal.withInitial(() -> new FakeBlockAccess(null));
+	
+	/**
+	 * Transforms {@link RenderChunk}. The ChunkCache made by every call to {@link RenderChunk#createRegionRenderCache(World, BlockPos, BlockPos, int)} is passed through here
+	 * <br>Wraps the ChunkCache the RenderChunk makes in a {@link FakeChunkCache}, so the RenderChunk made by the games own factory can be used, rather than making a second one for every chunk
+	 * @param cache The ChunkCache made by the RenderChunk
+	 * @param world The world
+	 * @param from The smallest corner of the region
+	 * @param to The largest corner of the region
+	 * @return A {@link FakeChunkCache}, wrapping {@code cache}
+	 */
+	public static ChunkCache wrapRegionRenderCache(ChunkCache cache, World world, BlockPos from, BlockPos to) {
+		return new FakeChunkCache(world, from, to, cache);
+	}
+	
 	/**
 	 * Transforms {@link net.minecraft.client.renderer.chunk.RenderChunk}
 	 * <br>Causes the iblockstate used to get the model to be recieved through here
@@ -43,21 +64,32 @@ public class SecretRoomsHooksClient {
 	 * @return The actual block state, if the tileEntity at that position is an {@link ISecretTileEntity}
 	 */
 	public static IBlockState getBlockState(IBlockAccess world, BlockPos pos) {
-		if(world.getTileEntity(pos) instanceof ISecretTileEntity) {
-			IBlockState state = world.getTileEntity(pos).getWorld().getBlockState(pos);
-			IBlockState renderState = ((ISecretTileEntity)world.getTileEntity(pos)).getMirrorStateSafely();
+		if(!mightHaveSecretBlock(world, pos)) {
+			return world.getBlockState(pos);
+		}
+		TileEntity tileEntity = world.getTileEntity(pos);
+		if(tileEntity instanceof ISecretTileEntity) {
+			World realWorld = tileEntity.getWorld();
+			IBlockState state = realWorld.getBlockState(pos);
+			IBlockState renderState = ((ISecretTileEntity)tileEntity).getMirrorStateSafely();
+			FakeBlockAccess fakeBlockAccess = FAKE_BLOCK_ACCESS.get();
 			try
 			{
-				renderState = renderState.getActualState(new FakeBlockAccess(world.getTileEntity(pos).getWorld()), pos);
+				renderState = renderState.getActualState(fakeBlockAccess.setBase(realWorld), pos);
 				state = state.getActualState(world, pos);
 			}
 			catch (Exception e) 
 			{
 				;
 			}
+			finally
+			{
+				fakeBlockAccess.setBase(null); //Dont keep hold of the world after its been used
+			}
 			state = ((IExtendedBlockState)state.getBlock().getExtendedState(state, world, pos)).withProperty(ISecretBlock.RENDER_PROPERTY, renderState);
-			SecretBlockModel.instance().AO.set(Minecraft.getMinecraft().getBlockRendererDispatcher().getModelForState(renderState).isAmbientOcclusion());
-			SecretBlockModel.instance().SRMBLOCK.set(state);
+			SecretBlockModel model = SecretBlockModel.instance();
+			model.AO.set(model.isAmbientOcclusion(renderState));
+			model.SRMBLOCK.set(state);
 			return state;
 		}
 		return world.getBlockState(pos);
@@ -74,8 +106,12 @@ public class SecretRoomsHooksClient {
 	 * @return {@link Block#doesSideBlockRendering(IBlockState, IBlockAccess, BlockPos, EnumFacing)}, run on the normal block, or the SRM state if the tileEntity at the position is an {@link ISecretTileEntity}
 	 */
 	public static boolean doesSideBlockRendering(Block block, IBlockState state, IBlockAccess world, BlockPos pos, EnumFacing face) {
-		if(world.getTileEntity(pos) instanceof ISecretTileEntity) {
-			IBlockState otherState = world.getTileEntity(pos).getWorld().getBlockState(pos);
+		if(!mightHaveSecretBlock(world, pos)) {
+			return block.doesSideBlockRendering(state, world, pos, face);
+		}
+		TileEntity tileEntity = world.getTileEntity(pos);
+		if(tileEntity instanceof ISecretTileEntity) {
+			IBlockState otherState = tileEntity.getWorld().getBlockState(pos);
 			return otherState.getBlock().doesSideBlockRendering(otherState, world, pos, face);
 //			if(!isMalisisDoor(state) && ((ISecretBlock)world.getTileEntity(pos).getWorld().getBlockState(pos).getBlock()).getModelClass() != FakeBlockModel.class) {
 //				return false;
@@ -86,29 +122,24 @@ public class SecretRoomsHooksClient {
 	
 	/**
 	 * Causes {@link IBlockProperties#shouldSideBeRendered(IBlockAccess, BlockPos, EnumFacing)} to be run through here. Means that culling will be correct, as the {@code access} wont have the correct {@link IBlockState} at the given position
+	 * <br>When rendering a chunk, the see-through secret blocks are worked out once for the rebuild by the {@link FakeChunkCache}, rather than looking up the neighbours tile entity for every face
 	 * @param block The Block used. Not needed however its already loaded, and unloading it would need more asm
 	 * @param state The state that that this is being called from
 	 * @param access the world
 	 * @param pos the position
 	 * @param face the blockface
-	 * @return {@link Block#shouldSideBeRendered(IBlockState, IBlockAccess, BlockPos, EnumFacing)}, run on the normal block, or the SRM state if the tileEntity at the position is an instance of {@link ISecretTileEntity}
+	 * @return {@link Block#shouldSideBeRendered(IBlockState, IBlockAccess, BlockPos, EnumFacing)}, run on the normal block, or true if the neighbour on that face is a secret block that can be seen through
 	 */
 	public static boolean shouldSideBeRendered(Block block, IBlockState state, IBlockAccess access, BlockPos pos, EnumFacing face) {
-		BlockPos offsetPos = pos.offset(face);
-		boolean ret;
-		if(!isMalisisDoor(state) && access.getTileEntity(pos) instanceof ISecretTileEntity) {
-			World world = access.getTileEntity(pos).getWorld(); //Need to use world as the IBlockAccess wont return the right states
-			IBlockState blockState = world.getBlockState(pos);
-			ret = blockState.getBlock().shouldSideBeRendered(blockState, world, pos, face);
+		boolean vanillaResult = block.shouldSideBeRendered(state, access, pos, face);
+		if(access instanceof FakeChunkCache) {
+			return ((FakeChunkCache)access).shouldSideBeRendered(vanillaResult, pos, face);
 		}
-		ret = block.shouldSideBeRendered(state, access, pos, face);
-		if(!ret && pos.getX() == -125 && pos.getY() == 26 && pos.getZ() == 264) {
-			System.out.println(face);
-		}
-		if(!ret && access.getTileEntity(offsetPos) instanceof ISecretTileEntity && ((ISecretBlock)access.getTileEntity(offsetPos).getWorld().getBlockState(offsetPos).getBlock()).isRenderTransparent()) {			
+		if(vanillaResult) {
 			return true;
 		}
-		return ret;
+		BlockPos offsetPos = pos.offset(face);
+		return mightHaveSecretBlock(access, offsetPos) && FakeChunkCache.isRenderTransparentSecretBlock(access.getTileEntity(offsetPos), offsetPos);
 	}
 	
 	/**
@@ -119,8 +150,12 @@ public class SecretRoomsHooksClient {
 	 * @return {@code model}, or {@link SecretBlockModel#instance()} if the tileEntity at the position is an instance of {@link ISecretTileEntity}
 	 */
 	public static IBakedModel getActualModel(IBlockAccess access, BlockPos pos, IBakedModel model) {
-		if(access.getTileEntity(pos) instanceof ISecretTileEntity) {
-			IBlockState state = access.getTileEntity(pos).getWorld().getBlockState(pos);
+		if(!mightHaveSecretBlock(access, pos)) {
+			return model;
+		}
+		TileEntity tileEntity = access.getTileEntity(pos);
+		if(tileEntity instanceof ISecretTileEntity) {
+			IBlockState state = tileEntity.getWorld().getBlockState(pos);
 			if(isMalisisDoor(state)) {
 				return model;
 			}
@@ -138,7 +173,7 @@ public class SecretRoomsHooksClient {
 	 * @return {@code state} or the mirrored state of the SRM block, if so needed. 
 	 */
 	public static IBlockState getActualState(IBlockAccess access, BlockPos pos, IBlockState state) {
-		if(isMalisisDoor(state)) {
+		if(!mightHaveSecretBlock(access, pos) || isMalisisDoor(state)) {
 			return state;
 		}
 		
@@ -154,6 +189,23 @@ public class SecretRoomsHooksClient {
 		return state;
 	}
 	
+	/**
+	 * Used by the hooks to return early for chunk sections without any secret blocks in them. 
+	 * When rendering a chunk this is worked out once per rebuild by the {@link FakeChunkCache}, otherwise the {@link SecretTileEntityRegistry} is checked
+	 * @param access The world
+	 * @param pos The position
+	 * @return false if there can't be a secret block at the position
+	 */
+	private static boolean mightHaveSecretBlock(IBlockAccess access, BlockPos pos) {
+		if(access instanceof FakeChunkCache) {
+			return ((FakeChunkCache)access).hasSecretBlocks();
+		}
+		if(access instanceof World) {
+			return SecretTileEntityRegistry.hasTileEntityInSection((World)access, pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4);
+		}
+		return true;
+	}
+	
 	private static boolean isMalisisDoor(IBlockState state) {
 		return SecretCompatibility.MALISISDOORS && (state.getBlock() == SecretBlocks.SECRET_WOODEN_DOOR || state.getBlock() == SecretBlocks.SECRET_IRON_DOOR || state.getBlock() == SecretBlocks.SECRET_WOODEN_TRAPDOOR || state.getBlock() == SecretBlocks.SECRET_IRON_TRAPDOOR);
 	}
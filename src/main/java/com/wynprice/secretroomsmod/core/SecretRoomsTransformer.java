@@ -39,9 +39,39 @@ public class SecretRoomsTransformer implements IClassTransformer {
 	 * Transforms {@link net.minecraft.client.renderer.chunk.RenderChunk}
 	 * <br>Causes the iblockstate used to get the model to be recieved through {@link SecretRoomsTransformer#getBlockState(IBlockAccess, BlockPos)}. 
 	 * This means that I am able to set up one state in the {@link FakeChunkCache}, and leave it, as the model is set elsewhere.
+	 * <br>Also passes the cache made by every call to {@code createRegionRenderCache} through {@link SecretRoomsHooksClient#wrapRegionRenderCache(net.minecraft.world.ChunkCache, World, BlockPos, BlockPos)},
+	 * so the {@link FakeChunkCache} is used by the RenderChunks the game makes, instead of making a second RenderChunk for every chunk
 	 */
 	private final Consumer<ClassNode> RenderChunk = (node) -> {
 		for(MethodNode methodNode : node.methods) {
+			for(int i = 0; i < methodNode.instructions.size(); i++) {
+				AbstractInsnNode ins = methodNode.instructions.get(i);
+				if(ins instanceof MethodInsnNode) {
+					MethodInsnNode mIns = ((MethodInsnNode)ins);
+					if(mIns.getOpcode() == Opcodes.INVOKEVIRTUAL && mIns.owner.equals("net/minecraft/client/renderer/chunk/RenderChunk") && mIns.name.equals("createRegionRenderCache") && mIns.desc.equals("(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/util/math/BlockPos;I)Lnet/minecraft/world/ChunkCache;")) {
+						//The arguments are put in new locals so they can be passed to the hook as well. The original call is kept, so its still virtual
+						int local = methodNode.maxLocals;
+						methodNode.maxLocals += 4;
+						InsnList before = new InsnList();
+						before.add(new VarInsnNode(Opcodes.ISTORE, local + 3));
+						before.add(new VarInsnNode(Opcodes.ASTORE, local + 2));
+						before.add(new VarInsnNode(Opcodes.ASTORE, local + 1));
+						before.add(new VarInsnNode(Opcodes.ASTORE, local));
+						before.add(new VarInsnNode(Opcodes.ALOAD, local));
+						before.add(new VarInsnNode(Opcodes.ALOAD, local + 1));
+						before.add(new VarInsnNode(Opcodes.ALOAD, local + 2));
+						before.add(new VarInsnNode(Opcodes.ILOAD, local + 3));
+						InsnList after = new InsnList();
+						after.add(new VarInsnNode(Opcodes.ALOAD, local));
+						after.add(new VarInsnNode(Opcodes.ALOAD, local + 1));
+						after.add(new VarInsnNode(Opcodes.ALOAD, local + 2));
+						after.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "com/wynprice/secretroomsmod/core/SecretRoomsHooksClient", "wrapRegionRenderCache", "(Lnet/minecraft/world/ChunkCache;Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/util/math/BlockPos;)Lnet/minecraft/world/ChunkCache;", false));
+						i += before.size() + after.size();
+						methodNode.instructions.insertBefore(ins, before);
+						methodNode.instructions.insert(ins, after);
+					}
+				}
+			}
 			if(methodNode.name.equals(getName("rebuildChunk", "func_178581_b"))) {
 				for(int i = 0; i < methodNode.instructions.size(); i++) {
 					AbstractInsnNode ins = methodNode.instructions.get(i);
@@ -49,7 +79,7 @@ public class SecretRoomsTransformer implements IClassTransformer {
 						MethodInsnNode mIns = ((MethodInsnNode)ins);
 						if(mIns.getOpcode() == Opcodes.INVOKEVIRTUAL && (mIns.owner.equals("ChunkCacheOF") || mIns.owner.equals("net/optifine/override/ChunkCacheOF")/*Needed so Optifine works with SRM*/ || mIns.owner.equals("net/minecraft/world/ChunkCache")) && mIns.name.equals(getName("getBlockState", "func_180495_p")) && mIns.desc.equals("(Lnet/minecraft/util/math/BlockPos;)Lnet/minecraft/block/state/IBlockState;")) {
 							methodNode.instructions.set(ins, new MethodInsnNode(Opcodes.INVOKESTATIC, "com/wynprice/secretroomsmod/core/SecretRoomsHooksClient", "getBlockState", "(Lnet/minecraft/world/IBlockAccess;Lnet/minecraft/util/math/BlockPos;)Lnet/minecraft/block/state/IBlockState;", false));
-							return;
+							break;
 						} 
 					}
 				}
@@ -2,25 +2,36 @@ package com.wynprice.secretroomsmod.handler;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.ConcurrentModificationException;
-import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import org.apache.commons.lang3.tuple.Pair;
+import javax.annotation.Nullable;
 
 import com.wynprice.secretroomsmod.SecretConfig;
 import com.wynprice.secretroomsmod.SecretItems;
 import com.wynprice.secretroomsmod.SecretRooms5;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
+import com.wynprice.secretroomsmod.base.interfaces.ISecretMirrorable;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteEligibility;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteSavedData;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteSerializer;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteStore;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteSyncQueue;
 import com.wynprice.secretroomsmod.items.CamouflagePaste;
 import com.wynprice.secretroomsmod.network.SecretNetwork;
 import com.wynprice.secretroomsmod.network.packets.MessagePacketSwingArm;
 import com.wynprice.secretroomsmod.network.packets.MessagePacketSyncEnergizedPaste;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
 import net.minecraft.block.state.IBlockState;
@@ -36,21 +47,28 @@ import net.minecraft.init.SoundEvents;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.EnumHand;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.SoundCategory;
 import net.minecraft.util.SoundEvent;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.world.GameType;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.client.event.DrawBlockHighlightEvent;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent.RightClickBlock;
+import net.minecraftforge.event.world.ChunkDataEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.ChunkWatchEvent;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
-import net.minecraftforge.fml.common.gameevent.PlayerEvent.PlayerLoggedInEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
 import net.minecraftforge.fml.common.gameevent.TickEvent.WorldTickEvent;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
@@ -64,57 +82,126 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 public class EnergizedPasteHandler 
 {
 	/**
-	 * The map used to keep track of everything Energized Paste related
+	 * The stores used to keep track of everything Energized Paste related on the server, keyed by dimension.
+	 * <br>This is never changed once set. Adding a dimension copies the map and replaces it
 	 */
-	private static HashMap<Integer, HashMap<BlockPos, Pair<IBlockState, IBlockState>>> energized_map = new HashMap<>();	
+	private static volatile Int2ObjectOpenHashMap<EnergizedPasteStore> energized_map = new Int2ObjectOpenHashMap<>();
+	
+	/**
+	 * The same as {@link #energized_map}, but for the client. The client only has the paste for the chunks its watching, which is sent in {@link #onChunkWatched(ChunkWatchEvent.Watch)}. 
+	 * <br>This is read from the chunk render threads, and kept separate so the integrated server and the client dont share paste
+	 */
+	private static volatile Int2ObjectOpenHashMap<EnergizedPasteStore> client_map = new Int2ObjectOpenHashMap<>();
+	
+	/**
+	 * The paste read from the legacy {@code secretroomsmod_data.dat} file, keyed by dimension. Only used on the server, to migrate chunks that have no paste saved on them yet
+	 */
+	private static Int2ObjectOpenHashMap<EnergizedPasteStore> legacy_map = new Int2ObjectOpenHashMap<>();
+	
+	/**
+	 * The current reset generation. See {@link EnergizedPasteSavedData}
+	 */
+	private static int resetGeneration;
+	
+	/**
+	 * Incremented whenever {@link #legacy_map} changes. The legacy file only needs to be written when this is different to {@link #legacySavedGeneration}
+	 */
+	private static int legacyGeneration;
+	
+	/**
+	 * The {@link #legacyGeneration} that was last written to the legacy file. Its set when the write is queued, and set to -1 by {@link #LEGACY_FILE_WRITER} if the write fails, so the file is written again on the next save
+	 */
+	private static volatile int legacySavedGeneration;
+	
+	/**
+	 * The server tick that the legacy file was last written on. Used to only write the file once when every dimension is saved
+	 */
+	private static int lastLegacySaveTick = -1;
+	
+	/**
+	 * The changes on the server that are yet to be sent to the clients, keyed by dimension
+	 */
+	private static final Int2ObjectOpenHashMap<EnergizedPasteSyncQueue> sync_queues = new Int2ObjectOpenHashMap<>();
+	
+	/**
+	 * Used to work out which chunk sections need to be re-rendered after a full sync, off of the client thread
+	 */
+	private static final ExecutorService RENDER_DIFFER = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "SecretRoomsMod Energized Paste Differ");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/**
+	 * Used to write the legacy file off of the server thread
+	 */
+	private static final ExecutorService LEGACY_FILE_WRITER = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "SecretRoomsMod Energized Paste Writer");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	/**
-	 * Used to put the EnergizedPaste into the {@link #energized_map}. Calls {@link #putState(int, BlockPos, IBlockState, IBlockState)}
+	 * Used to put the EnergizedPaste into the world. Calls {@link #putState(World, BlockPos, IBlockState, IBlockState)}
 	 * @param world the current world
 	 * @param pos the current position
 	 * @param state the current blockstate
 	 */
 	public static void putState(World world, BlockPos pos, IBlockState state)
 	{
-		putState(world.provider.getDimension(), pos, state, world.getBlockState(pos));
+		putState(world, pos, state, world.getBlockState(pos));
 	}
 	
 	/**
-	 * Used to put the EnergizedPaste into the {@link #energized_map}
-	 * @param dim the worlds dimension
+	 * Used to put the EnergizedPaste into the world
+	 * @param world the world
 	 * @param pos the position
 	 * @param state the state to be used to render with
 	 * @param replaceState the state thats just been replaced
 	 */
-	public static void putState(int dim, BlockPos pos, IBlockState state, IBlockState replaceState)
+	public static void putState(World world, BlockPos pos, IBlockState state, IBlockState replaceState)
 	{
-		pos = new BlockPos(pos);
-		HashMap<BlockPos, Pair<IBlockState, IBlockState>> innerMap = energized_map.get(dim) == null || energized_map.get(dim).keySet() == null || energized_map.get(dim).keySet().isEmpty() ? new HashMap<>() : energized_map.get(dim);
-		innerMap.put(pos, Pair.of(state, replaceState));
-		energized_map.put(dim, innerMap);
+		getOrCreateStore(world.isRemote, world.provider.getDimension()).put(pos, state, replaceState);
 	}
 	
 	/**
-	 * Used to remove the replaced state.
-	 * @param dim The worlds dimension
-	 * @param pos The block position
+	 * @param remote true to get the clients stores, false for the servers
+	 * @return the stores for that side, keyed by dimension
 	 */
-	public static void removeReplacedState(int dim, BlockPos pos)
+	private static Int2ObjectOpenHashMap<EnergizedPasteStore> getStores(boolean remote)
 	{
-		pos = new BlockPos(pos);
-		HashMap<BlockPos, Pair<IBlockState, IBlockState>> innerMap = energized_map.get(dim) == null || energized_map.get(dim).keySet() == null || energized_map.get(dim).keySet().isEmpty() ? new HashMap<>() : energized_map.get(dim);
-		try
-		{
-			if(innerMap.containsKey(pos))
-				innerMap.remove(pos);
-
-		}
-		catch (ConcurrentModificationException e) 
+		return remote ? client_map : energized_map;
+	}
+	
+	/**
+	 * Gets the store for the dimension, creating it if needed
+	 * @param remote true for the client, false for the server
+	 * @param dim the dimension
+	 * @return the store for {@code dim}
+	 */
+	private static synchronized EnergizedPasteStore getOrCreateStore(boolean remote, int dim)
+	{
+		EnergizedPasteStore store = getStores(remote).get(dim);
+		if(store == null)
 		{
-			e.printStackTrace();
-			return;
+			Int2ObjectOpenHashMap<EnergizedPasteStore> newMap = new Int2ObjectOpenHashMap<>(getStores(remote));
+			store = new EnergizedPasteStore();
+			newMap.put(dim, store);
+			setStores(remote, newMap);
 		}
-		energized_map.put(dim, innerMap);
+		return store;
+	}
+	
+	/**
+	 * Used to remove the replaced state.
+	 * @param world The world
+	 * @param pos The block position
+	 */
+	public static void removeReplacedState(World world, BlockPos pos)
+	{
+		EnergizedPasteStore store = getStore(world);
+		if(store != null)
+			store.remove(pos);
 	}
 	
 	/**
@@ -125,15 +212,101 @@ public class EnergizedPasteHandler
 	 */
 	public static boolean hasReplacedState(World world, BlockPos pos)
 	{
-		pos = new BlockPos(pos);
-		if(energized_map.get(world.provider.getDimension()) == null)
-			return false;
-		HashMap<BlockPos, Pair<IBlockState, IBlockState>> innerMap = energized_map.get(world.provider.getDimension());
-		if(innerMap.containsKey(pos))
-			return canBlockBeMirrored(world.getBlockState(pos).getBlock(), world, world.getBlockState(pos), pos);//Extra precaution
+		EnergizedPasteStore store = getStore(world);
+		if(store != null && store.contains(pos))
+		{
+			IBlockState state = world.getBlockState(pos);
+			return canBlockBeMirrored(state.getBlock(), world, state, pos);//Extra precaution
+		}
 		return false;
 	}
 	
+	/**
+	 * Replaces all the paste in a chunk
+	 * @param world the world
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @param builder the builder containing the new paste for the chunk
+	 */
+	public static void replaceChunk(World world, int chunkX, int chunkZ, EnergizedPasteStore.Builder builder)
+	{
+		if(builder.isEmpty())
+		{
+			EnergizedPasteStore store = getStore(world);
+			if(store != null)
+				store.removeChunk(chunkX, chunkZ);
+		}
+		else
+			getOrCreateStore(world.isRemote, world.provider.getDimension()).replaceChunk(chunkX, chunkZ, builder);
+	}
+	
+	/**
+	 * Queues the paste at the position to be sent to the players watching its chunk at the end of the tick. Call this after changing the paste on the server
+	 * @param world the server world
+	 * @param pos the position that changed
+	 */
+	public static void syncChange(World world, BlockPos pos)
+	{
+		if(!world.isRemote)
+			getSyncQueue(world.provider.getDimension()).markChanged(pos);
+	}
+	
+	/**
+	 * Gets the sync queue for the dimension, creating it if needed. The queues are added to from the network threads, so this is synchronized
+	 * @param dim the dimension
+	 * @return the queue
+	 */
+	private static EnergizedPasteSyncQueue getSyncQueue(int dim)
+	{
+		synchronized (sync_queues) 
+		{
+			EnergizedPasteSyncQueue queue = sync_queues.get(dim);
+			if(queue == null)
+				sync_queues.put(dim, queue = new EnergizedPasteSyncQueue());
+			return queue;
+		}
+	}
+	
+	/**
+	 * Used to send the batched up changes at the end of each world tick
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public static void onWorldTickEnd(WorldTickEvent event)
+	{
+		if(event.phase != Phase.END || event.world.isRemote) return;
+		getSyncQueue(event.world.provider.getDimension()).flush((WorldServer) event.world, getStore(event.world));
+	}
+	
+	/**
+	 * Removes the store for a dimension
+	 * @param remote true for the client, false for the server
+	 * @param dim the dimension
+	 */
+	private static synchronized void removeStore(boolean remote, int dim)
+	{
+		if(getStores(remote).containsKey(dim))
+		{
+			Int2ObjectOpenHashMap<EnergizedPasteStore> newMap = new Int2ObjectOpenHashMap<>(getStores(remote));
+			newMap.remove(dim);
+			setStores(remote, newMap);
+		}
+	}
+	
+	/**
+	 * Used as a fast path to skip whole chunk sections that have no Energized Paste in them
+	 * @param world The current world
+	 * @param chunkX The chunk x
+	 * @param sectionY The section y (block y >> 4)
+	 * @param chunkZ The chunk z
+	 * @return True if there is any energized paste in the chunk section
+	 */
+	public static boolean hasPasteInSection(World world, int chunkX, int sectionY, int chunkZ)
+	{
+		EnergizedPasteStore store = getStore(world);
+		return store != null && store.hasPasteInSection(chunkX, sectionY, chunkZ);
+	}
+	
 	/**
 	 * Used to get the state used to be rendered
 	 * @param world The current world
@@ -142,19 +315,10 @@ public class EnergizedPasteHandler
 	 */
 	public static IBlockState getReplacedState(World world, BlockPos pos)
 	{
-		pos = new BlockPos(pos);
 		if(!hasReplacedState(world, pos)) return Blocks.STONE.getDefaultState(); // should never happen
-		try
-		{
-			for(BlockPos blockpos : energized_map.get(world.provider.getDimension()).keySet())
-				if(blockpos.equals(pos))
-					return energized_map.get(world.provider.getDimension()).get(blockpos).getLeft();
-		}
-		catch (NullPointerException e) //Can be thrown when /resetenergized is called
-		{
-			;
-		}
-		return Blocks.AIR.getDefaultState();
+		EnergizedPasteStore store = getStore(world);
+		IBlockState state = store == null ? null : store.getState(pos); //Can be null if removed on another thread since the check
+		return state == null ? Blocks.AIR.getDefaultState() : state;
 	}
 	
 	/**
@@ -165,12 +329,10 @@ public class EnergizedPasteHandler
 	 */
 	public static IBlockState getSetBlockState(World world, BlockPos pos)
 	{
-		pos = new BlockPos(pos);
 		if(!hasReplacedState(world, pos)) return Blocks.STONE.getDefaultState(); // should never happen
-		for(BlockPos blockpos : energized_map.get(world.provider.getDimension()).keySet())
-			if(blockpos.equals(pos))
-				return energized_map.get(world.provider.getDimension()).get(blockpos).getRight();
-		return Blocks.STONE.getDefaultState();
+		EnergizedPasteStore store = getStore(world);
+		IBlockState state = store == null ? null : store.getReplacedState(pos);
+		return state == null ? Blocks.STONE.getDefaultState() : state;
 	}
 	
 	/**
@@ -179,25 +341,14 @@ public class EnergizedPasteHandler
 	 * @param world the current world
 	 * @param state the current state
 	 * @param pos the current blockpos
-	 * @return True if the block can be used to render on another block
-	 * @deprecated Convert to API. However, still used
+	 * @return True if the block can be used to render on another block. See {@link ISecretMirrorable#canBlockBeMirrored(World, IBlockState, BlockPos)}
 	 */
-	@Deprecated
 	public static boolean canBlockBeMirrored(Block block, World world, IBlockState state, BlockPos pos)
 	{
 		if(block.hasTileEntity() || block.hasTileEntity(state))
 			return tileEntityOptIn(block, world, state, pos);
 		if(block instanceof ISecretBlock) return false;
-		boolean directFromClass = false;
-		try
-		{
-			directFromClass = (boolean) block.getClass().getMethod("SRMcanBlockBeMirrored", World.class, IBlockState.class, BlockPos.class).invoke(block, world, state,  pos);
-		}
-		catch (Throwable e) 
-		{
-			;
-		}
-		return directFromClass || !Arrays.asList(SecretConfig.ENERGIZED_PASTE.blacklistMirror).contains(block.getRegistryName().toString());
+		return EnergizedPasteEligibility.canBeMirrored(block, world, state, pos);
 	}
 	
 	/**
@@ -206,31 +357,11 @@ public class EnergizedPasteHandler
 	 * @param world the world
 	 * @param state the state
 	 * @param pos the position
-	 * @return True if the block has the method {@code SRMdoesTileEntityOptIn(World, IBlockState, BlockPos)} which returns true, or the config has the tileEntity in the whitelist
-	 * @deprecated Convert to API, However still in use
+	 * @return True if the block opts in with {@link ISecretMirrorable#doesTileEntityOptIn(World, IBlockState, BlockPos)} or an IMC message, or the config has the tileEntity in the whitelist
 	 */
-	@Deprecated
 	public static boolean tileEntityOptIn(Block block, World world, IBlockState state, BlockPos pos)
 	{
-		boolean directFromClass = false;
-		try
-		{
-			directFromClass = (boolean) block.getClass().getMethod("SRMdoesTileEntityOptIn", World.class, IBlockState.class, BlockPos.class).invoke(block, world, state,  pos);
-		}
-		catch (Throwable e) 
-		{
-			;
-		}
-		
-		boolean starred = false;
-		for(String te : SecretConfig.ENERGIZED_PASTE.tileEntityWhitelist)
-		{
-			ResourceLocation location = new ResourceLocation(te);
-			if(location.getResourcePath().equals("*") && location.getResourceDomain().equals(block.getRegistryName().getResourceDomain()))
-				starred = true;
-		}
-		
-		return directFromClass || Arrays.asList(SecretConfig.ENERGIZED_PASTE.tileEntityWhitelist).contains(block.getRegistryName().toString()) || starred;
+		return EnergizedPasteEligibility.tileEntityOptIn(block, world, state, pos);
 	}
 	
 	/**
@@ -239,23 +370,12 @@ public class EnergizedPasteHandler
 	 * @param world the current world
 	 * @param state the current state
 	 * @param pos the current blockpos
-	 * @return True if the block can change its rendering
-	 * @deprecated Convert to API. However, still used
+	 * @return True if the block can change its rendering. See {@link ISecretMirrorable#canBlockBeReplaced(World, IBlockState, BlockPos)}
 	 */
-	@Deprecated
 	public static boolean canBlockBeReplaced(Block block, World world, IBlockState state, BlockPos pos)
 	{
 		if(block instanceof ISecretBlock) return false;
-		boolean directFromClass = false;
-		try
-		{
-			directFromClass = (boolean) block.getClass().getMethod("SRMcanBlockBeReplaced", World.class, IBlockState.class, BlockPos.class).invoke(block, world, state, pos);
-		}
-		catch (Throwable e) 
-		{
-			;
-		}
-		return directFromClass || !Arrays.asList(SecretConfig.ENERGIZED_PASTE.replacementBlacklist).contains(block.getRegistryName().toString());
+		return EnergizedPasteEligibility.canBeReplaced(block, world, state, pos);
 	}
 	
 	
@@ -316,8 +436,8 @@ public class EnergizedPasteHandler
 				{
 					previousServerTickMap.add(location);
 					IBlockState state = EnergizedPasteHandler.getReplacedState(event.getWorld(), event.getPos());
-					EnergizedPasteHandler.removeReplacedState(event.getWorld().provider.getDimension(), event.getPos());
-					SecretNetwork.sendToAll(new MessagePacketSyncEnergizedPaste(event.getWorld().provider.getDimension(), event.getPos(), null, false));
+					EnergizedPasteHandler.removeReplacedState(event.getWorld(), event.getPos());
+					EnergizedPasteHandler.syncChange(event.getWorld(), event.getPos());
 					if(((EntityPlayerMP)event.getEntityPlayer()).interactionManager.getGameType() == GameType.SURVIVAL)
 					{
 						NBTTagCompound nbt = new NBTTagCompound();
@@ -374,7 +494,7 @@ public class EnergizedPasteHandler
 							if(!event.getWorld().isRemote)
 							{
 								EnergizedPasteHandler.putState(event.getWorld(), event.getPos(), state);
-								SecretNetwork.sendToAll(new MessagePacketSyncEnergizedPaste(event.getWorld().provider.getDimension(), event.getPos(), state, true));
+								EnergizedPasteHandler.syncChange(event.getWorld(), event.getPos());
 								if(((EntityPlayerMP)event.getEntityPlayer()).interactionManager.getGameType() == GameType.SURVIVAL)
 									if(!previousServerTickMap.contains(location))
 									{
@@ -401,20 +521,174 @@ public class EnergizedPasteHandler
 	}
 	
 	/**
-	 * Called when the world is saved. Used to save the energized paste map
+	 * Called when a chunk is saved. Used to save the energized paste in that chunk to the chunk itself.
+	 * <br>If the chunk is being unloaded, its paste is then removed from {@link #energized_map}
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public static void onChunkSaved(ChunkDataEvent.Save event)
+	{
+		if(event.getWorld().isRemote) return;
+		Chunk chunk = event.getChunk();
+		int dim = event.getWorld().provider.getDimension();
+		EnergizedPasteStore store = energized_map.get(dim);
+		EnergizedPasteStore legacy = legacy_map.get(dim);
+		boolean hasPaste = store != null && store.hasPasteInChunk(chunk.x, chunk.z);
+		boolean hasLegacyPaste = legacy != null && legacy.hasPasteInChunk(chunk.x, chunk.z);
+		//Chunks that the legacy file has paste for always get a tag, even if its empty. Otherwise the legacy paste would be loaded again next time
+		if(hasPaste || hasLegacyPaste)
+			event.getData().setTag(EnergizedPasteSerializer.CHUNK_TAG, EnergizedPasteSerializer.writeChunk(store, chunk.x, chunk.z, resetGeneration));
+		if(hasLegacyPaste)
+			removeLegacyChunk(legacy, chunk.x, chunk.z);
+		if(hasPaste && !chunk.isLoaded())
+			store.removeChunk(chunk.x, chunk.z);
+	}
+	
+	/**
+	 * Called when a world is saved. While the legacy {@code secretroomsmod_data.dat} file still exists, this is used to rewrite it without the chunks that have since been migrated.
+	 * <br>{@link WorldEvent.Save} is fired once for every dimension, so this only writes the file once per save cycle, and only if something has changed. 
+	 * The file is written on {@link #LEGACY_FILE_WRITER}, to a temporary file which is then moved over the real one. This means a crash mid-save can't corrupt the file.
 	 * @param event the event
 	 */
 	@SubscribeEvent
 	public static void onWorldSaved(WorldEvent.Save event)
 	{
-		if(event.getWorld().isRemote) return;		
+		if(event.getWorld().isRemote || legacyGeneration == legacySavedGeneration) return;
+		int tick = event.getWorld().getMinecraftServer().getTickCounter();
+		if(tick == lastLegacySaveTick) return;
+		lastLegacySaveTick = tick;
+		legacySavedGeneration = legacyGeneration;
+		Int2ObjectOpenHashMap<EnergizedPasteStore> legacy = legacy_map; //Never changed once set, and the stores are safe to read off thread
+		File file = getLegacyFile();
+		LEGACY_FILE_WRITER.execute(() -> {
+			if(!writeLegacyFile(legacy, file))
+				legacySavedGeneration = -1;
+		});
+	}
+	
+	/**
+	 * Called on {@link #LEGACY_FILE_WRITER}. Writes the legacy stores to the file, or deletes the file if there is nothing left in it
+	 * @param legacy the legacy stores
+	 * @param file the file to write to
+	 * @return true if the file was written or deleted, false if it failed
+	 */
+	private static boolean writeLegacyFile(Int2ObjectOpenHashMap<EnergizedPasteStore> legacy, File file)
+	{
+		boolean empty = true;
+		for(EnergizedPasteStore store : legacy.values())
+			empty &= store.isEmpty();
 		try 
 		{
-			CompressedStreamTools.writeCompressed(saveToNBT(), new FileOutputStream(new File(FMLCommonHandler.instance().getSavesDirectory(), FMLCommonHandler.instance().getMinecraftServerInstance().getFolderName() + "/" + SecretRooms5.MODID + "_data.dat")));
-		} catch (IOException e) 
+			if(empty)
+			{
+				Files.deleteIfExists(file.toPath());
+				SecretRooms5.LOGGER.info("All Energized Paste has been migrated to chunks, deleted {}", file);
+				return true;
+			}
+			File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+			try(FileOutputStream stream = new FileOutputStream(temp))
+			{
+				CompressedStreamTools.writeCompressed(EnergizedPasteSerializer.writeStores(legacy), stream);
+			}
+			try
+			{
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) 
+			{
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		} 
+		catch (IOException e) 
+		{
+			SecretRooms5.LOGGER.error("Unable to save {}", file, e);
+			return false;
+		}
+	}
+	
+	/**
+	 * Removes a chunk from the legacy store, as its paste is now saved on the chunk. Marks the legacy file as needing to be rewritten
+	 * @param legacy the legacy store for the chunks dimension
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 */
+	private static void removeLegacyChunk(EnergizedPasteStore legacy, int chunkX, int chunkZ)
+	{
+		legacy.removeChunk(chunkX, chunkZ);
+		legacyGeneration++;
+	}
+	
+	/**
+	 * Called when a chunk is loaded. Used to load the energized paste saved on that chunk, or the paste from the legacy {@code secretroomsmod_data.dat} file if the chunk has none.
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public static void onChunkLoaded(ChunkDataEvent.Load event)
+	{
+		if(event.getWorld().isRemote) return;
+		Chunk chunk = event.getChunk();
+		int dim = event.getWorld().provider.getDimension();
+		EnergizedPasteStore.Builder builder = new EnergizedPasteStore.Builder();
+		if(event.getData().hasKey(EnergizedPasteSerializer.CHUNK_TAG, 10))
 		{
-			e.printStackTrace();
+			NBTTagCompound nbt = event.getData().getCompoundTag(EnergizedPasteSerializer.CHUNK_TAG);
+			EnergizedPasteStore legacy = legacy_map.get(dim);
+			if(legacy != null && legacy.hasPasteInChunk(chunk.x, chunk.z)) //The chunk tag always wins over the legacy file
+				removeLegacyChunk(legacy, chunk.x, chunk.z);
+			if(EnergizedPasteSerializer.getResetGeneration(nbt) == resetGeneration)
+			{
+				try
+				{
+					EnergizedPasteSerializer.readChunk(nbt, chunk.x, chunk.z, builder);
+				}
+				catch (IllegalArgumentException e) 
+				{
+					SecretRooms5.LOGGER.error("Unable to load Energized Paste for chunk {}, {} in dimension {}", chunk.x, chunk.z, dim, e);
+				}
+			}
 		}
+		else if(legacy_map.get(dim) != null)
+			legacy_map.get(dim).forEachInChunk(chunk.x, chunk.z, builder::put);
+		if(!builder.isEmpty())
+			getOrCreateStore(false, dim).replaceChunk(chunk.x, chunk.z, builder);
+	}
+	
+	/**
+	 * Called when a player starts watching a chunk, after the chunk itself has been sent. Used to send the player the paste in that chunk
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public static void onChunkWatched(ChunkWatchEvent.Watch event)
+	{
+		ChunkPos pos = event.getChunk();
+		EnergizedPasteStore store = getStore(event.getPlayer().world);
+		if(store != null && store.hasPasteInChunk(pos.x, pos.z))
+			SecretNetwork.sendToPlayer(event.getPlayer(), new MessagePacketSyncEnergizedPaste(event.getPlayer().world.provider.getDimension(), pos.x, pos.z, EnergizedPasteSerializer.writeChunk(store, pos.x, pos.z, resetGeneration)));
+	}
+	
+	/**
+	 * Called when a chunk is unloaded. On the client, the paste in that chunk is forgotten.
+	 * The server unloads the chunk on the client whenever the player stops watching it, so this dosnt depend on what paste the server still has for the chunk
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public static void onChunkUnloaded(ChunkEvent.Unload event)
+	{
+		if(!event.getWorld().isRemote) return;
+		EnergizedPasteStore store = getStore(event.getWorld());
+		if(store != null)
+			store.removeChunk(event.getChunk().x, event.getChunk().z);
+	}
+	
+	/**
+	 * Called when a world is unloaded. Used to remove the energized paste for that dimension, as its saved on the chunks (or on the client, as its sent again with the chunks)
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public static void onWorldUnloaded(WorldEvent.Unload event)
+	{
+		removeStore(event.getWorld().isRemote, event.getWorld().provider.getDimension());
 	}
 	
 	/**
@@ -468,114 +742,150 @@ public class EnergizedPasteHandler
 	}
 	
 	/**
-	 * Used when the world is loaded, used to load the {@link EnergizedPasteHandler#energized_map}
+	 * Used when the world is loaded. When the overworld is loaded (which is always first), the legacy {@code secretroomsmod_data.dat} file is read into {@link #legacy_map}, 
+	 * so chunks saved before paste was stored on chunks can be migrated as they load
 	 * @param event the event
 	 */
 	@SubscribeEvent
 	public static void onWorldLoaded(WorldEvent.Load event)
 	{
-		if(event.getWorld().isRemote) return;
-		try 
+		if(event.getWorld().isRemote || event.getWorld().provider.getDimension() != 0) return;
+		setStores(false, new Int2ObjectOpenHashMap<>());
+		legacy_map = new Int2ObjectOpenHashMap<>();
+		legacyGeneration = legacySavedGeneration = 0;
+		lastLegacySaveTick = -1;
+		resetGeneration = EnergizedPasteSavedData.get(event.getWorld()).getResetGeneration();
+		File file = getLegacyFile();
+		if(!file.exists())
+			return;
+		try(FileInputStream stream = new FileInputStream(file))
 		{
-			NBTTagCompound nbt = CompressedStreamTools.readCompressed(new FileInputStream(new File(FMLCommonHandler.instance().getSavesDirectory(), FMLCommonHandler.instance().getMinecraftServerInstance().getFolderName() + "/" + SecretRooms5.MODID + "_data.dat")));
+			NBTTagCompound nbt = CompressedStreamTools.readCompressed(stream);
 			if(nbt != null)
-				readFromNBT(nbt);
+				legacy_map = EnergizedPasteSerializer.readStores(nbt);
 		} 
-		catch (FileNotFoundException e) {
-			SecretRooms5.LOGGER.info("Secret Rooms Mod file cannot be found. Assuming world creation");
-		}
-		catch (IOException e) 
+		catch (IOException | IllegalArgumentException e) 
 		{
-			e.printStackTrace();
-			return;
+			SecretRooms5.LOGGER.error("Unable to read the legacy Energized Paste file {}", file, e);
+			legacy_map = new Int2ObjectOpenHashMap<>();
 		}
 	}
 	
 	/**
-	 * Used to save {@link EnergizedPasteHandler#energized_map} to an NBTTagCompound
+	 * Resets all the energized paste. Paste in chunks that aren't loaded is ignored when those chunks next load. Used by /resetenergized
+	 * @param server the server
+	 */
+	public static void resetAll(MinecraftServer server)
+	{
+		EnergizedPasteSavedData data = EnergizedPasteSavedData.get(server.getWorld(0));
+		data.incrementResetGeneration();
+		resetGeneration = data.getResetGeneration();
+		legacy_map = new Int2ObjectOpenHashMap<>();
+		legacyGeneration++;
+		clearAll();
+		SecretNetwork.sendToAll(new MessagePacketSyncEnergizedPaste(saveToNBT()));
+	}
+	
+	/**
+	 * @return the legacy file that all energized paste used to be saved to, before it was saved on the chunks
+	 */
+	private static File getLegacyFile()
+	{
+		return new File(FMLCommonHandler.instance().getSavesDirectory(), FMLCommonHandler.instance().getMinecraftServerInstance().getFolderName() + "/" + SecretRooms5.MODID + "_data.dat");
+	}
+	
+	/**
+	 * Used to save the servers {@link EnergizedPasteHandler#energized_map} to an NBTTagCompound
 	 * @return the saved Tag Compound
 	 */
 	public static NBTTagCompound saveToNBT()
 	{
-		NBTTagCompound nbt = new NBTTagCompound();
-		NBTTagCompound nbt_info = new NBTTagCompound();
-		NBTTagCompound nbt_worlds = new NBTTagCompound();
-		HashMap<Integer, HashMap<BlockPos, Pair<IBlockState, IBlockState>>> energized_map = EnergizedPasteHandler.energized_map;
-		int[] dimensions = new int[energized_map.size()];
-		for(int i = 0; i < dimensions.length; i++)
-			dimensions[i] = (int) energized_map.keySet().toArray()[i];
-		nbt_info.setIntArray("dimensions", dimensions);
-		ArrayList<Integer> list = new ArrayList<>(energized_map.keySet());
-		for(int i : list)
-		{			
-			if(energized_map.get(i) == null)
-				continue;
-			
-			NBTTagCompound nbt_world = new NBTTagCompound();
-			int[] blockPositions = new int[energized_map.get(i).size() * 3];
-			int index = 0;
-			ArrayList<BlockPos> list1 = new ArrayList<>(energized_map.get(i).keySet());
-			for(BlockPos pos : list1)
-			{
-				NBTTagCompound nbt_blockstate = new NBTTagCompound();
-				blockPositions[index++] = pos.getX();
-				blockPositions[index++] = pos.getY();
-				blockPositions[index++] = pos.getZ();
-				nbt_blockstate.setString("block", energized_map.get(i).get(pos).getLeft().getBlock().getRegistryName().toString());
-				nbt_blockstate.setInteger("meta", energized_map.get(i).get(pos).getLeft().getBlock().getMetaFromState(energized_map.get(i).get(pos).getLeft()));
-				nbt_blockstate.setString("replace_block", energized_map.get(i).get(pos).getRight().getBlock().getRegistryName().toString());
-				nbt_blockstate.setInteger("replace_meta", energized_map.get(i).get(pos).getRight().getBlock().getMetaFromState(energized_map.get(i).get(pos).getRight()));
-				
-				nbt_world.setTag(String.valueOf(pos.getX()) + " " + String.valueOf(pos.getY()) + " " + String.valueOf(pos.getZ()), nbt_blockstate);
-			}
-			nbt_world.setIntArray("blockpos", blockPositions);
-			nbt_worlds.setTag("dimension_" + String.valueOf(i), nbt_world);
-		}
-		
-		nbt.setTag("worlds", nbt_worlds);
-		nbt.setTag("info", nbt_info);
-		
-		return nbt;
+		return EnergizedPasteSerializer.writeStores(energized_map);
 	}
 	
 	/**
-	 * Used to set the {@link EnergizedPasteHandler#energized_map} from an NBTTagCompound
+	 * Used to set the clients {@link EnergizedPasteHandler#client_map} from an NBTTagCompound. 
+	 * The old and new paste in the clients world is then compared off of the client thread, and only the chunk sections that changed are re-rendered
 	 * @param nbt the tag with saved info
+	 * @param world the clients world
 	 */
-	public static void readFromNBT(NBTTagCompound nbt)
+	@SideOnly(Side.CLIENT)
+	public static void readFromNBT(NBTTagCompound nbt, World world)
 	{
-		energized_map.clear();
-		NBTTagCompound world_info = nbt.getCompoundTag("info");
-		for(int dimension : world_info.getIntArray("dimensions"))
+		EnergizedPasteStore oldStore = getStore(world);
+		setStores(true, EnergizedPasteSerializer.readStores(nbt));
+		EnergizedPasteStore newStore = getStore(world);
+		RENDER_DIFFER.execute(() -> {
+			LongOpenHashSet sections = new LongOpenHashSet();
+			EnergizedPasteStore.forEachDifference(oldStore, newStore, pos -> addSectionsAround(sections, BlockPos.fromLong(pos)));
+			if(!sections.isEmpty())
+				Minecraft.getMinecraft().addScheduledTask(() -> {
+					if(Minecraft.getMinecraft().world == world)
+						markSectionsForRenderUpdate(world, sections);
+				});
+		});
+	}
+	
+	/**
+	 * Adds the chunk sections that need to be re-rendered when the paste at a position changes. 
+	 * This includes the sections of the neighbouring blocks, as the paste can change how their faces are culled
+	 * @param sections the set to add the sections to, as {@link BlockPos#toLong()} of the section position
+	 * @param pos the position that changed
+	 */
+	public static void addSectionsAround(LongSet sections, BlockPos pos)
+	{
+		for(int x = (pos.getX() - 1) >> 4; x <= (pos.getX() + 1) >> 4; x++)
+			for(int y = Math.max(pos.getY() - 1, 0) >> 4; y <= Math.min(pos.getY() + 1, 255) >> 4; y++)
+				for(int z = (pos.getZ() - 1) >> 4; z <= (pos.getZ() + 1) >> 4; z++)
+					sections.add(new BlockPos(x, y, z).toLong());
+	}
+	
+	/**
+	 * Marks each chunk section for a render update.
+	 * {@link World#markBlockRangeForRenderUpdate(int, int, int, int, int, int)} grows the range by a block on each side, so the range is shrunk by a block to stay in the one section
+	 * @param world the world
+	 * @param sections the sections, from {@link #addSectionsAround(LongSet, BlockPos)}
+	 */
+	public static void markSectionsForRenderUpdate(World world, LongSet sections)
+	{
+		for(LongIterator iterator = sections.iterator(); iterator.hasNext();)
 		{
-			NBTTagCompound nbt_world = nbt.getCompoundTag("worlds").getCompoundTag("dimension_" + String.valueOf(dimension));
-			int[] blockpos = nbt_world.getIntArray("blockpos");
-			for(int i = 0; i < blockpos.length; i+=3)
-			{
-				NBTTagCompound nbt_blockstate = nbt_world.getCompoundTag(String.valueOf(blockpos[i]) + " " + String.valueOf(blockpos[i + 1]) + " " + String.valueOf(blockpos[i + 2]));
-				putState(dimension, new BlockPos(blockpos[i], blockpos[i + 1], blockpos[i + 2]),
-						Block.REGISTRY.getObject(new ResourceLocation(nbt_blockstate.getString("block"))).getStateFromMeta(nbt_blockstate.getInteger("meta")),
-						Block.REGISTRY.getObject(new ResourceLocation(nbt_blockstate.getString("replace_block"))).getStateFromMeta(nbt_blockstate.getInteger("replace_meta")));
-			}
+			BlockPos section = BlockPos.fromLong(iterator.nextLong());
+			int x = section.getX() << 4;
+			int y = section.getY() << 4;
+			int z = section.getZ() << 4;
+			world.markBlockRangeForRenderUpdate(x + 1, y + 1, z + 1, x + 14, y + 14, z + 14);
 		}
 	}
 	
 	/**
-	 * Used to send the data to the player when they join
-	 * @param event the event
+	 * Replaces every store on a side at once. Readers on other threads will either see all the old stores or all the new ones
+	 * @param remote true for the client, false for the server
+	 * @param newMap the new stores, keyed by dimension
 	 */
-	@SubscribeEvent
-	public static void onPlayerJoin(PlayerLoggedInEvent event)
+	private static synchronized void setStores(boolean remote, Int2ObjectOpenHashMap<EnergizedPasteStore> newMap)
 	{
-		SecretNetwork.sendToPlayer(event.player, new MessagePacketSyncEnergizedPaste(saveToNBT(), null));
+		if(remote)
+			client_map = newMap;
+		else
+			energized_map = newMap;
+	}
+	
+	/**
+	 * Used to get the Energized Paste store for a world
+	 * @param world the world. The clients store is used if this is remote
+	 * @return the store for the world, or null if there has never been any paste in that world
+	 */
+	@Nullable
+	public static EnergizedPasteStore getStore(World world) {
+		return getStores(world.isRemote).get(world.provider.getDimension());
 	}
 	
 	/**
-	 * Used as a getter of {@link EnergizedPasteHandler#energized_map}
-	 * @return {@link EnergizedPasteHandler#energized_map}
+	 * Removes all the Energized Paste from every dimension on the server. Used by /resetenergized
 	 */
-	public static HashMap<Integer, HashMap<BlockPos, Pair<IBlockState, IBlockState>>> getEnergized_map() {
-		return energized_map;
+	public static void clearAll() {
+		setStores(false, new Int2ObjectOpenHashMap<>());
 	}
 	
 	/**
@@ -1,16 +1,29 @@
 package com.wynprice.secretroomsmod.handler;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
 
-import com.google.common.io.ByteStreams;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.wynprice.secretroomsmod.SecretConfig;
 import com.wynprice.secretroomsmod.SecretRooms5;
-import net.minecraft.entity.player.EntityPlayer;
+
+import net.minecraft.client.Minecraft;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.Style;
 import net.minecraft.util.text.TextComponentTranslation;
@@ -18,94 +31,268 @@ import net.minecraft.util.text.event.ClickEvent;
 import net.minecraft.util.text.event.HoverEvent;
 import net.minecraftforge.common.ForgeVersion.Status;
 import net.minecraftforge.common.MinecraftForge;
-import net.minecraftforge.event.entity.EntityJoinWorldEvent;
+import net.minecraftforge.fml.common.Loader;
 import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.ClientTickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
 import net.minecraftforge.fml.common.versioning.ComparableVersion;
 import net.minecraftforge.fml.relauncher.Side;
 
 /**
- * Used to check for an update.
+ * Used to check for an update. The check is started on startup and run off of the client thread, with the response cached on disk for {@link #CACHE_TTL}.
+ * The chat message is posted once the result is ready and the player is in a world
  *
  * @author Wyn Price
- * @deprecated rewrite. Bad code
  */
-@Deprecated
 @EventBusSubscriber(modid = SecretRooms5.MODID, value = Side.CLIENT)
 public class HandlerUpdateChecker {
+
+    /**
+     * How long the whole download, from connecting to reading the last byte, can take before the check is given up on
+     */
+    public static final int TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * The biggest update json that will be downloaded. Its only a few kilobytes, so anything bigger than this is wrong
+     */
+    public static final int MAX_SIZE = 1 << 20;
+
+    /**
+     * How long a cached response is used for before the update json is downloaded again
+     */
+    public static final long CACHE_TTL = TimeUnit.HOURS.toMillis(12);
+
+    private static final ExecutorService CHECKER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "SecretRoomsMod Update Checker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The result of the check, or null if its not finished
+     */
+    private static volatile UpdateResult result;
+
     private static boolean hasPosted;
 
-    @SubscribeEvent
-    public static void onPlayerJoin(EntityJoinWorldEvent event) {
+    /**
+     * Starts the update check, if its enabled in the config. Does nothing otherwise
+     */
+    public static void start() {
+        URL url;
         try {
-            if (event.getEntity() instanceof EntityPlayer && !hasPosted) {
-                hasPosted = true;
-                if (!SecretConfig.GENERAL.updateChecker) {
-                    return;
+            url = new URL(SecretRooms5.UPDATE_URL);
+        } catch (IOException e) {
+            SecretRooms5.LOGGER.warn("The URL is in the wrong format. Please report this");
+            return;
+        }
+        start(url, new File(Loader.instance().getConfigDir(), SecretRooms5.MODID + "_update_cache.json"));
+    }
+
+    /**
+     * Starts the update check against the given url, if its enabled in the config
+     * @param url the url of the update json
+     * @param cacheFile the file the response is cached to
+     * @return the future from {@link #check(URL, File, long)}, or null if the update checker is disabled
+     */
+    @Nullable
+    static CompletableFuture<UpdateResult> start(URL url, File cacheFile) {
+        if (!SecretConfig.GENERAL.updateChecker) {
+            return null;
+        }
+        CompletableFuture<UpdateResult> future = check(url, cacheFile, CACHE_TTL);
+        future.thenAccept(r -> result = r);
+        return future;
+    }
+
+    /**
+     * Checks for an update on the checker thread. The response is only cached once its been read as an update json
+     * @param url the url of the update json
+     * @param cacheFile the file the response is cached to
+     * @param cacheTTL how long, in milliseconds, the cached response can be used for
+     * @return a future completed with the result, or with null if the update json could not be got
+     */
+    public static CompletableFuture<UpdateResult> check(URL url, File cacheFile, long cacheTTL) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                String cached = readCache(cacheFile, cacheTTL);
+                UpdateResult result = cached == null ? null : getResult(cached);
+                if (result != null) {
+                    return result;
                 }
-                Status status = Status.PENDING;
-                ComparableVersion target = null;
-                InputStream con = null;
-                String data = null;
-                try {
-                    URL url = new URL(SecretRooms5.UPDATE_URL);
-                    con = url.openStream();
-                    data = new String(ByteStreams.toByteArray(con), "UTF-8");
-                    con.close();
-                } catch (UnknownHostException h) {
-                    SecretRooms5.LOGGER.warn("Host Cannot be found for update checker. Either the Site is offline or the checker has moved. Please report this");
-                    return;
-                } catch (IOException e) {
-                    SecretRooms5.LOGGER.warn("The URL is in the wrong format. Please report this");
-                    return;
+                String data = download(url);
+                result = data == null ? null : getResult(data);
+                if (result != null) {
+                    writeCache(data, cacheFile);
                 }
+                return result;
+            } catch (RuntimeException e) {
+                SecretRooms5.LOGGER.error("Exception in SecretRoomsMod update checker: ", e);
+                return null;
+            }
+        }, CHECKER);
+    }
 
-                @SuppressWarnings("unchecked")
-                Map<String, Object> json = new Gson().fromJson(data, Map.class);
-                @SuppressWarnings("unchecked")
-                Map<String, String> promos = (Map<String, String>) json.get("promos");
-                String rec = promos.get(MinecraftForge.MC_VERSION + "-recommended");
-                String lat = promos.get(MinecraftForge.MC_VERSION + "-latest");
-                ComparableVersion current = new ComparableVersion(SecretRooms5.VERSION);
-                if (rec != null) {
-                    ComparableVersion recommended = new ComparableVersion(rec);
-                    int diff = recommended.compareTo(current);
-                    if (diff == 0)
-                        status = Status.UP_TO_DATE;
-                    else if (diff < 0) {
-                        status = Status.AHEAD;
-                        if (lat != null) {
-                            ComparableVersion latest = new ComparableVersion(lat);
-                            if (current.compareTo(latest) < 0) {
-                                status = Status.OUTDATED;
-                                target = latest;
-                            }
-                        }
-                    } else {
-                        status = Status.OUTDATED;
-                        target = recommended;
+    @Nullable
+    private static String readCache(File cacheFile, long cacheTTL) {
+        if (cacheFile.isFile() && System.currentTimeMillis() - cacheFile.lastModified() < cacheTTL) {
+            try {
+                return new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                SecretRooms5.LOGGER.warn("Unable to read the update checker cache, downloading it again", e);
+            }
+        }
+        return null;
+    }
+
+    private static void writeCache(String data, File cacheFile) {
+        try {
+            Files.write(cacheFile.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            SecretRooms5.LOGGER.warn("Unable to write the update checker cache", e);
+        }
+    }
+
+    /**
+     * Downloads the update json. The read timeout is only for each read, so the time taken and the size are checked after every read too,
+     * meaning a server sending the response really slowly cant keep the checker going
+     * @param url the url of the update json
+     * @return the update json, or null if it could not be downloaded
+     */
+    @Nullable
+    private static String download(URL url) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT);
+        try {
+            URLConnection con = url.openConnection();
+            con.setConnectTimeout(TIMEOUT);
+            con.setReadTimeout(TIMEOUT);
+            try (InputStream stream = con.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    if (out.size() > MAX_SIZE) {
+                        throw new IOException("The response is bigger than " + MAX_SIZE + " bytes");
                     }
-                } else if (lat != null) {
+                    if (System.nanoTime() - deadline > 0) {
+                        throw new IOException("The response took longer than " + TIMEOUT + "ms");
+                    }
+                }
+                return new String(out.toByteArray(), StandardCharsets.UTF_8);
+            } finally {
+                if (con instanceof HttpURLConnection) {
+                    ((HttpURLConnection) con).disconnect();
+                }
+            }
+        } catch (UnknownHostException h) {
+            SecretRooms5.LOGGER.warn("Host Cannot be found for update checker. Either the Site is offline or the checker has moved. Please report this");
+            return null;
+        } catch (IOException e) {
+            SecretRooms5.LOGGER.warn("Unable to get the update json: {}", e.toString());
+            return null;
+        }
+    }
+
+    @Nullable
+    private static UpdateResult getResult(String data) {
+        Map<String, Object> json;
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = new Gson().fromJson(data, Map.class);
+            json = map;
+        } catch (JsonParseException e) {
+            SecretRooms5.LOGGER.warn("The update json is in the wrong format. Please report this");
+            return null;
+        }
+        if (json == null || !(json.get("promos") instanceof Map)) {
+            SecretRooms5.LOGGER.warn("The update json is in the wrong format. Please report this");
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> promos = (Map<String, String>) json.get("promos");
+        Status status;
+        ComparableVersion target = null;
+        String rec = promos.get(MinecraftForge.MC_VERSION + "-recommended");
+        String lat = promos.get(MinecraftForge.MC_VERSION + "-latest");
+        ComparableVersion current = new ComparableVersion(SecretRooms5.VERSION);
+        if (rec != null) {
+            ComparableVersion recommended = new ComparableVersion(rec);
+            int diff = recommended.compareTo(current);
+            if (diff == 0)
+                status = Status.UP_TO_DATE;
+            else if (diff < 0) {
+                status = Status.AHEAD;
+                if (lat != null) {
                     ComparableVersion latest = new ComparableVersion(lat);
                     if (current.compareTo(latest) < 0) {
-                        status = Status.BETA_OUTDATED;
+                        status = Status.OUTDATED;
                         target = latest;
-                    } else
-                        status = Status.BETA;
-                } else
-                    status = Status.BETA;
-                if (status == Status.OUTDATED || status == Status.BETA_OUTDATED) {
-                    ITextComponent componant = new TextComponentTranslation("update.version", SecretRooms5.MODNAME, SecretRooms5.VERSION, target)
-                            .setStyle(new Style().setClickEvent(new ClickEvent(ClickEvent.Action.OPEN_URL, (String) json.get("homepage"))));
-                    componant.getStyle().setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new TextComponentTranslation("update.hover", (String) json.get("homepage"))));
-                    event.getEntity().sendMessage(componant);
-
-                } else
-                    SecretRooms5.LOGGER.info("Update checker returned: " + status);
-
+                    }
+                }
+            } else {
+                status = Status.OUTDATED;
+                target = recommended;
             }
-        } catch (RuntimeException e) {
-            SecretRooms5.LOGGER.error("Exception in SecretRoomsMod update checker: ", e);
+        } else if (lat != null) {
+            ComparableVersion latest = new ComparableVersion(lat);
+            if (current.compareTo(latest) < 0) {
+                status = Status.BETA_OUTDATED;
+                target = latest;
+            } else
+                status = Status.BETA;
+        } else
+            status = Status.BETA;
+        return new UpdateResult(status, target, (String) json.get("homepage"));
+    }
+
+    @SubscribeEvent
+    public static void onClientTick(ClientTickEvent event) {
+        UpdateResult result = HandlerUpdateChecker.result;
+        if (event.phase != Phase.END || hasPosted || result == null || Minecraft.getMinecraft().player == null) {
+            return;
+        }
+        hasPosted = true;
+        if (result.status == Status.OUTDATED || result.status == Status.BETA_OUTDATED) {
+            ITextComponent componant = new TextComponentTranslation("update.version", SecretRooms5.MODNAME, SecretRooms5.VERSION, result.target)
+                    .setStyle(new Style().setClickEvent(new ClickEvent(ClickEvent.Action.OPEN_URL, result.homepage)));
+            componant.getStyle().setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new TextComponentTranslation("update.hover", result.homepage)));
+            Minecraft.getMinecraft().player.sendMessage(componant);
+        } else
+            SecretRooms5.LOGGER.info("Update checker returned: " + result.status);
+    }
+
+    /**
+     * The result of an update check
+     * @author Wyn Price
+     */
+    public static class UpdateResult {
+        private final Status status;
+        @Nullable
+        private final ComparableVersion target;
+        private final String homepage;
+
+        private UpdateResult(Status status, @Nullable ComparableVersion target, String homepage) {
+            this.status = status;
+            this.target = target;
+            this.homepage = homepage;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the version to update to, or null if there isnt one
+         */
+        @Nullable
+        public ComparableVersion getTarget() {
+            return target;
+        }
+
+        public String getHomepage() {
+            return homepage;
         }
     }
 }
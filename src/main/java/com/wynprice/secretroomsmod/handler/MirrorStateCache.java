@@ -0,0 +1,182 @@
+package com.wynprice.secretroomsmod.handler;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.annotation.Nullable;
+
+import com.wynprice.secretroomsmod.SecretRooms5;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+/**
+ * Holds the mirrored states of secret blocks for when the tile entity isnt in place, like when the block is being placed or has just been broken.
+ * <br>The states are kept per world and per chunk, and are cleared when the chunk or world unloads. Each world holds at most {@link #MAX_SIZE} states, with the least recently used chunks dropped first.
+ * <br>Can be used from any thread, as the chunk render threads read from it
+ * @author Wyn Price
+ *
+ */
+@EventBusSubscriber(modid=SecretRooms5.MODID)
+public class MirrorStateCache
+{
+	/**
+	 * The most states each world can hold
+	 */
+	public static final int MAX_SIZE = 16384;
+
+	private static final Map<World, MirrorStateCache> CACHES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * The states in each chunk, keyed by {@link ChunkPos#asLong(int, int)} and then {@link BlockPos#toLong()}
+	 */
+	private final Long2ObjectLinkedOpenHashMap<Long2ObjectOpenHashMap<IBlockState>> chunks = new Long2ObjectLinkedOpenHashMap<>();
+
+	private int size;
+
+	/**
+	 * @param world the world
+	 * @param pos the position
+	 * @return the cached mirrored state at the position, or null if there is none
+	 */
+	@Nullable
+	public static IBlockState get(World world, BlockPos pos)
+	{
+		MirrorStateCache cache = CACHES.get(world);
+		return cache == null ? null : cache.getState(pos);
+	}
+
+	/**
+	 * Caches the mirrored state at the position
+	 * @param world the world
+	 * @param pos the position
+	 * @param state the mirrored state
+	 */
+	public static void put(World world, BlockPos pos, IBlockState state)
+	{
+		MirrorStateCache cache;
+		synchronized (CACHES)
+		{
+			cache = CACHES.computeIfAbsent(world, w -> new MirrorStateCache());
+		}
+		cache.putState(pos, state);
+	}
+
+	/**
+	 * Used by the secret tile entities to keep the cache up to date. Called whenever their mirrored state changes
+	 * @param world the world. Nothing is changed if this is null
+	 * @param pos the position of the tile entity
+	 * @param mirrorState the new mirrored state. Nothing is changed if this is null
+	 */
+	public static void update(@Nullable World world, BlockPos pos, @Nullable IBlockState mirrorState)
+	{
+		if(world != null && mirrorState != null)
+			put(world, pos, mirrorState.getBlock().getStateFromMeta(mirrorState.getBlock().getMetaFromState(mirrorState)));
+	}
+
+	/**
+	 * Removes the mirrored state at the position
+	 * @param world the world
+	 * @param pos the position
+	 * @return the state that was removed, or null if there was none
+	 */
+	@Nullable
+	public static IBlockState remove(World world, BlockPos pos)
+	{
+		MirrorStateCache cache = CACHES.get(world);
+		return cache == null ? null : cache.removeState(pos);
+	}
+
+	/**
+	 * @return the number of states held, across every world
+	 */
+	public static int size()
+	{
+		int total = 0;
+		synchronized (CACHES)
+		{
+			for(MirrorStateCache cache : CACHES.values())
+				total += cache.getSize();
+		}
+		return total;
+	}
+
+	/**
+	 * @param world the world
+	 * @return the number of states held for the world
+	 */
+	public static int size(World world)
+	{
+		MirrorStateCache cache = CACHES.get(world);
+		return cache == null ? 0 : cache.getSize();
+	}
+
+	@SubscribeEvent
+	public static void onChunkUnload(ChunkEvent.Unload event)
+	{
+		MirrorStateCache cache = CACHES.get(event.getWorld());
+		if(cache != null)
+			cache.removeChunk(ChunkPos.asLong(event.getChunk().x, event.getChunk().z));
+	}
+
+	@SubscribeEvent
+	public static void onWorldUnload(WorldEvent.Unload event)
+	{
+		CACHES.remove(event.getWorld());
+	}
+
+	private synchronized IBlockState getState(BlockPos pos)
+	{
+		Long2ObjectOpenHashMap<IBlockState> states = chunks.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+		return states == null ? null : states.get(pos.toLong());
+	}
+
+	private synchronized void putState(BlockPos pos, IBlockState state)
+	{
+		long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+		Long2ObjectOpenHashMap<IBlockState> states = chunks.getAndMoveToLast(key);
+		if(states == null)
+			chunks.putAndMoveToLast(key, states = new Long2ObjectOpenHashMap<>());
+		if(states.put(pos.toLong(), state) == null)
+			size++;
+		while(size > MAX_SIZE && chunks.firstLongKey() != key)
+			size -= chunks.removeFirst().size();
+	}
+
+	private synchronized IBlockState removeState(BlockPos pos)
+	{
+		long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+		Long2ObjectOpenHashMap<IBlockState> states = chunks.get(key);
+		if(states == null)
+			return null;
+		IBlockState state = states.remove(pos.toLong());
+		if(state != null)
+		{
+			size--;
+			if(states.isEmpty())
+				chunks.remove(key);
+		}
+		return state;
+	}
+
+	private synchronized void removeChunk(long key)
+	{
+		Long2ObjectOpenHashMap<IBlockState> states = chunks.remove(key);
+		if(states != null)
+			size -= states.size();
+	}
+
+	private synchronized int getSize()
+	{
+		return size;
+	}
+}
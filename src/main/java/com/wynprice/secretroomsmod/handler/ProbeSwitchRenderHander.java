@@ -5,6 +5,7 @@ import com.wynprice.secretroomsmod.SecretRooms5;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.render.fakemodels.SecretBlockModel;
 import com.wynprice.secretroomsmod.render.fakemodels.SwitchProbeRenderChange;
+import com.wynprice.secretroomsmod.render.fakemodels.TrueSightModelRegistry;
 
 import net.minecraft.block.Block;
 import net.minecraft.client.renderer.block.model.ModelResourceLocation;
@@ -15,7 +16,7 @@ import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.relauncher.Side;
 
 /**
- * Used to switch the models on bake event
+ * Used to switch the models on bake event, and to bake the True Sight models
  * @author Wyn Price
  *
  */
@@ -25,6 +26,7 @@ public class ProbeSwitchRenderHander
 	 @SubscribeEvent
 	 public static void onModelBake(ModelBakeEvent e) 
 	 {
+		 TrueSightModelRegistry.bakeModels();
 		 boolean instanceSet = false;
 		 for(ModelResourceLocation model : e.getModelRegistry().getKeys())
 		 {
@@ -1,45 +1,106 @@
 package com.wynprice.secretroomsmod.handler;
 
+import java.util.Arrays;
+
 import com.wynprice.secretroomsmod.SecretRooms5;
-import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
-import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteStore;
 import com.wynprice.secretroomsmod.items.TrueSightHelmet;
 
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.entity.EntityPlayerSP;
-import net.minecraft.inventory.EntityEquipmentSlot;
-import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
 import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
 import net.minecraftforge.fml.common.gameevent.TickEvent.PlayerTickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.RenderTickEvent;
 import net.minecraftforge.fml.relauncher.Side;
 
 /**
- * Used to update the rendering of blocks when the True Helmet is put on
+ * Used to update the rendering of blocks when the True Helmet is put on or taken off.
+ * <br>Only the chunk sections in render distance with secret blocks or Energized Paste are re-rendered, closest first, with at most {@link #SECTIONS_PER_FRAME} marked each frame
  * @author Wyn Price
  *
  */
 @EventBusSubscriber(modid=SecretRooms5.MODID, value=Side.CLIENT)
-public class ReloadTrueSightModelsHandler 
+public class ReloadTrueSightModelsHandler
 {
-	
+	/**
+	 * The most chunk sections marked for a render update each frame
+	 */
+	public static final int SECTIONS_PER_FRAME = 16;
+
 	static boolean lastTickHelmet;
-	
-	static int updated = 0;
-	
+
+	/**
+	 * The sections left to re-render, as {@link BlockPos#toLong()} of the section position
+	 */
+	private static long[] pending = new long[0];
+
+	private static int pendingIndex;
+
+	private static World pendingWorld;
+
 	@SubscribeEvent
 	public static void onPlayerTick(PlayerTickEvent event)
 	{
-		if(event.player instanceof EntityPlayerSP && (updated++ == 20 || event.player.getItemStackFromSlot(EntityEquipmentSlot.HEAD).getItem() instanceof TrueSightHelmet != lastTickHelmet))
-		{
-			lastTickHelmet = TrueSightHelmet.isHelmet();
-			for(TileEntity holder : ISecretBlock.ALL_SECRET_TILE_ENTITIES)
-				if(holder instanceof ISecretTileEntity)
-					event.player.world.markBlockRangeForRenderUpdate(holder.getPos().add(-1, -1, -1), holder.getPos().add(1, 1, 1));
-			if(EnergizedPasteHandler.getEnergized_map().get(event.player.world.provider.getDimension()) != null)
-				for(BlockPos pos : EnergizedPasteHandler.getEnergized_map().get(event.player.world.provider.getDimension()).keySet())
-					event.player.world.markBlockRangeForRenderUpdate(pos.add(-1, -1, -1), pos.add(1, 1, 1));
+		if(event.phase != Phase.END || !(event.player instanceof EntityPlayerSP) || TrueSightHelmet.isHelmet(event.player) == lastTickHelmet)
+			return;
+		lastTickHelmet = !lastTickHelmet;
+		World world = event.player.world;
+		int range = Minecraft.getMinecraft().gameSettings.renderDistanceChunks;
+		int chunkX = event.player.chunkCoordX;
+		int chunkZ = event.player.chunkCoordZ;
+		LongOpenHashSet sections = new LongOpenHashSet();
+		SecretTileEntityRegistry.forEachInRegion(world, chunkX - range, chunkZ - range, chunkX + range, chunkZ + range, holder -> EnergizedPasteHandler.addSectionsAround(sections, holder.getPos()));
+		EnergizedPasteStore store = EnergizedPasteHandler.getStore(world);
+		if(store != null)
+			store.forEach((packedPos, stateId, replacedStateId) -> {
+				BlockPos pos = BlockPos.fromLong(packedPos);
+				if(Math.abs((pos.getX() >> 4) - chunkX) <= range && Math.abs((pos.getZ() >> 4) - chunkZ) <= range)
+					EnergizedPasteHandler.addSectionsAround(sections, pos);
+			});
 
+		//Every section in range is in the new set, so any sections still pending from the last change can be dropped
+		long[] unsorted = sections.toLongArray();
+		long[] order = new long[unsorted.length];
+		for(int i = 0; i < unsorted.length; i++)
+			order[i] = (long) distanceSq(unsorted[i], chunkX, (int) event.player.posY >> 4, chunkZ) << 32 | i;
+		Arrays.sort(order);
+		pending = new long[order.length];
+		for(int i = 0; i < order.length; i++)
+			pending[i] = unsorted[(int) order[i]];
+		pendingIndex = 0;
+		pendingWorld = world;
+	}
+
+	@SubscribeEvent
+	public static void onRenderTick(RenderTickEvent event)
+	{
+		if(event.phase != Phase.START || pendingIndex >= pending.length)
+			return;
+		World world = Minecraft.getMinecraft().world;
+		if(world != pendingWorld)
+		{
+			pending = new long[0];
+			pendingIndex = 0;
+			pendingWorld = null;
+			return;
 		}
+		LongOpenHashSet sections = new LongOpenHashSet();
+		for(int end = Math.min(pendingIndex + SECTIONS_PER_FRAME, pending.length); pendingIndex < end; pendingIndex++)
+			sections.add(pending[pendingIndex]);
+		EnergizedPasteHandler.markSectionsForRenderUpdate(world, sections);
+	}
+
+	private static int distanceSq(long section, int x, int y, int z)
+	{
+		BlockPos pos = BlockPos.fromLong(section);
+		int dx = pos.getX() - x;
+		int dy = pos.getY() - y;
+		int dz = pos.getZ() - z;
+		return dx * dx + dy * dy + dz * dz;
 	}
 }
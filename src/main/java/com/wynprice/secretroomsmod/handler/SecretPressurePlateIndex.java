@@ -0,0 +1,198 @@
+package com.wynprice.secretroomsmod.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.wynprice.secretroomsmod.SecretRooms5;
+import com.wynprice.secretroomsmod.base.BaseFakePressurePlate;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.ClassInheritanceMultiMap;
+import net.minecraft.util.EntitySelectors;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
+import net.minecraftforge.fml.common.gameevent.TickEvent.WorldTickEvent;
+
+/**
+ * Keeps track of the loaded secret pressure plates on the server, per world and per chunk.
+ * <br>The plates dont tick. Each world tick, every plate counts the entities on its cell, going over the entity lists of the chunk sections next to it.
+ * A plate with nothing in those sections only costs a few array lookups. The plate is only woken up, and does its own {@link World#getEntitiesWithinAABB(Class, AxisAlignedBB)},
+ * when the count changes, meaning an entity has got on or off it. This catches sneaking players, items and minecarts, which never call {@link net.minecraft.block.Block#onEntityWalk(World, BlockPos, Entity)}
+ * @author Wyn Price
+ *
+ */
+@EventBusSubscriber(modid=SecretRooms5.MODID)
+public class SecretPressurePlateIndex
+{
+	private static final Map<World, SecretPressurePlateIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * The plates in each chunk, keyed by {@link ChunkPos#asLong(int, int)} and then by {@link BlockPos#toLong()}
+	 */
+	private final Long2ObjectOpenHashMap<Long2ObjectOpenHashMap<Plate>> chunks = new Long2ObjectOpenHashMap<>();
+
+	/**
+	 * The plates to wake this tick. Kept so a new list isnt made every tick
+	 */
+	private final List<Plate> toWake = new ArrayList<>();
+
+	/**
+	 * Adds the plate to the index. Does nothing on the client
+	 * @param world the world
+	 * @param pos the plates position
+	 */
+	public static void add(World world, BlockPos pos)
+	{
+		if(world == null || world.isRemote)
+			return;
+		SecretPressurePlateIndex index;
+		synchronized (INDEXES)
+		{
+			index = INDEXES.computeIfAbsent(world, w -> new SecretPressurePlateIndex());
+		}
+		index.addPlate(pos);
+	}
+
+	/**
+	 * Removes the plate from the index
+	 * @param world the world
+	 * @param pos the plates position
+	 */
+	public static void remove(World world, BlockPos pos)
+	{
+		if(world == null || world.isRemote)
+			return;
+		SecretPressurePlateIndex index = INDEXES.get(world);
+		if(index != null)
+			index.removePlate(pos);
+	}
+
+	@SubscribeEvent
+	public static void onWorldTick(WorldTickEvent event)
+	{
+		if(event.phase != Phase.END || event.world.isRemote)
+			return;
+		SecretPressurePlateIndex index = INDEXES.get(event.world);
+		if(index != null)
+			index.wakePlates(event.world);
+	}
+
+	@SubscribeEvent
+	public static void onWorldUnload(WorldEvent.Unload event)
+	{
+		INDEXES.remove(event.getWorld());
+	}
+
+	private synchronized void addPlate(BlockPos pos)
+	{
+		long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+		Long2ObjectOpenHashMap<Plate> plates = chunks.get(key);
+		if(plates == null)
+			chunks.put(key, plates = new Long2ObjectOpenHashMap<>());
+		if(!plates.containsKey(pos.toLong()))
+			plates.put(pos.toLong(), new Plate(pos));
+	}
+
+	private synchronized void removePlate(BlockPos pos)
+	{
+		long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+		Long2ObjectOpenHashMap<Plate> plates = chunks.get(key);
+		if(plates != null && plates.remove(pos.toLong()) != null && plates.isEmpty())
+			chunks.remove(key);
+	}
+
+	private void wakePlates(World world)
+	{
+		synchronized (this)
+		{
+			toWake.clear();
+			for(Long2ObjectOpenHashMap<Plate> plates : chunks.values())
+				for(Plate plate : plates.values())
+				{
+					int occupants = plate.countOccupants(world);
+					if(occupants != plate.occupants)
+					{
+						plate.occupants = occupants;
+						toWake.add(plate);
+					}
+				}
+		}
+		//Waking a plate can change the world, which can add or remove plates, so its done outside of the loop
+		for(int i = 0; i < toWake.size(); i++)
+		{
+			Plate plate = toWake.get(i);
+			BlockPos pos = new BlockPos(plate.x, plate.y, plate.z);
+			Block block = world.getBlockState(pos).getBlock();
+			if(block instanceof BaseFakePressurePlate)
+				((BaseFakePressurePlate)block).calculateState(world, pos);
+		}
+		toWake.clear();
+	}
+
+	/**
+	 * A plate in the index, with the amount of entities that were on it last tick
+	 * @author Wyn Price
+	 *
+	 */
+	private static class Plate
+	{
+		private final int x;
+		private final int y;
+		private final int z;
+		private int occupants;
+
+		private Plate(BlockPos pos)
+		{
+			this.x = pos.getX();
+			this.y = pos.getY();
+			this.z = pos.getZ();
+		}
+
+		/**
+		 * Counts the entities on the plate, using the same box as {@link BaseFakePressurePlate#calculateState(World, BlockPos)}.
+		 * Entities are stored in the chunk section their position is in, so the sections within {@link World#MAX_ENTITY_RADIUS} of the plate are checked, like vanilla does
+		 * @param world the world
+		 * @return the amount of entities on the plate
+		 */
+		private int countOccupants(World world)
+		{
+			double minY = y;
+			double maxY = y + 1.1D;
+			int count = 0;
+			for(int chunkX = (int)Math.floor((x - World.MAX_ENTITY_RADIUS) / 16D); chunkX <= (int)Math.floor((x + 1 + World.MAX_ENTITY_RADIUS) / 16D); chunkX++)
+				for(int chunkZ = (int)Math.floor((z - World.MAX_ENTITY_RADIUS) / 16D); chunkZ <= (int)Math.floor((z + 1 + World.MAX_ENTITY_RADIUS) / 16D); chunkZ++)
+				{
+					Chunk chunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+					if(chunk == null)
+						continue;
+					ClassInheritanceMultiMap<Entity>[] entityLists = chunk.getEntityLists();
+					int minSection = Math.max((int)Math.floor((minY - World.MAX_ENTITY_RADIUS) / 16D), 0);
+					int maxSection = Math.min((int)Math.floor((maxY + World.MAX_ENTITY_RADIUS) / 16D), entityLists.length - 1);
+					for(int sectionY = minSection; sectionY <= maxSection; sectionY++)
+					{
+						if(entityLists[sectionY].isEmpty())
+							continue;
+						for(Entity entity : entityLists[sectionY])
+						{
+							AxisAlignedBB box = entity.getEntityBoundingBox();
+							if(box.maxX > x && box.minX < x + 1 && box.maxY > minY && box.minY < maxY && box.maxZ > z && box.minZ < z + 1 && EntitySelectors.NOT_SPECTATING.apply(entity))
+								count++;
+						}
+					}
+				}
+			return count;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package com.wynprice.secretroomsmod.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+import com.wynprice.secretroomsmod.SecretRooms5;
+import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+/**
+ * Keeps track of the loaded {@link ISecretTileEntity}s, per world and per chunk. The tile entities add themselves in {@link TileEntity#onLoad()},
+ * and remove themselves in {@link TileEntity#invalidate()} and {@link TileEntity#onChunkUnload()}
+ * @author Wyn Price
+ *
+ */
+@EventBusSubscriber(modid=SecretRooms5.MODID)
+public class SecretTileEntityRegistry
+{
+	private static final Map<World, SecretTileEntityRegistry> REGISTRIES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * The tile entities in each chunk, keyed by {@link ChunkPos#asLong(int, int)}
+	 */
+	private final Long2ObjectOpenHashMap<RegistryChunk> chunks = new Long2ObjectOpenHashMap<>();
+
+	private int size;
+
+	/**
+	 * Adds the tile entity to the registry. Does nothing if the tile entity has no world
+	 * @param tileEntity the tile entity
+	 */
+	public static void add(TileEntity tileEntity)
+	{
+		if(tileEntity.getWorld() == null)
+			return;
+		SecretTileEntityRegistry registry;
+		synchronized (REGISTRIES)
+		{
+			registry = REGISTRIES.computeIfAbsent(tileEntity.getWorld(), w -> new SecretTileEntityRegistry());
+		}
+		registry.addTileEntity(tileEntity);
+	}
+
+	/**
+	 * Removes the tile entity from the registry
+	 * @param tileEntity the tile entity
+	 */
+	public static void remove(TileEntity tileEntity)
+	{
+		if(tileEntity.getWorld() == null)
+			return;
+		SecretTileEntityRegistry registry = REGISTRIES.get(tileEntity.getWorld());
+		if(registry != null)
+			registry.removeTileEntity(tileEntity);
+	}
+	
+	/**
+	 * Used as a fast path by the render hooks, to skip chunk sections that have no secret blocks in them
+	 * @param world the world
+	 * @param chunkX the chunk x
+	 * @param sectionY the section y (block y >> 4)
+	 * @param chunkZ the chunk z
+	 * @return true if there is a registered tile entity in the chunk section
+	 */
+	public static boolean hasTileEntityInSection(World world, int chunkX, int sectionY, int chunkZ)
+	{
+		if(sectionY < 0 || sectionY >= 16)
+			return false;
+		SecretTileEntityRegistry registry = REGISTRIES.get(world);
+		return registry != null && registry.hasInSection(chunkX, sectionY, chunkZ);
+	}
+
+	/**
+	 * Runs the consumer on every registered tile entity in the chunk region. Both corners are inclusive
+	 * @param world the world
+	 * @param minChunkX the smallest chunk x
+	 * @param minChunkZ the smallest chunk z
+	 * @param maxChunkX the largest chunk x
+	 * @param maxChunkZ the largest chunk z
+	 * @param consumer the consumer. Is free to add and remove tile entities
+	 */
+	public static void forEachInRegion(World world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, Consumer<TileEntity> consumer)
+	{
+		SecretTileEntityRegistry registry = REGISTRIES.get(world);
+		if(registry != null)
+			registry.collect(minChunkX, minChunkZ, maxChunkX, maxChunkZ).forEach(consumer);
+	}
+
+	/**
+	 * @param world the world
+	 * @return the number of tile entities registered for the world
+	 */
+	public static int size(World world)
+	{
+		SecretTileEntityRegistry registry = REGISTRIES.get(world);
+		return registry == null ? 0 : registry.getSize();
+	}
+
+	@SubscribeEvent
+	public static void onWorldUnload(WorldEvent.Unload event)
+	{
+		REGISTRIES.remove(event.getWorld());
+	}
+
+	private void addTileEntity(TileEntity tileEntity)
+	{
+		boolean newSection;
+		synchronized (this)
+		{
+			long key = ChunkPos.asLong(tileEntity.getPos().getX() >> 4, tileEntity.getPos().getZ() >> 4);
+			RegistryChunk chunk = chunks.get(key);
+			if(chunk == null)
+				chunks.put(key, chunk = new RegistryChunk());
+			if(!chunk.tileEntities.add(tileEntity))
+				return;
+			size++;
+			newSection = chunk.sectionCounts[(tileEntity.getPos().getY() >> 4) & 15]++ == 0;
+		}
+		//The section could have been set up to render before this was added, in which case it would of been skipped by the render hooks
+		if(newSection && tileEntity.getWorld().isRemote)
+			tileEntity.getWorld().markBlockRangeForRenderUpdate(tileEntity.getPos(), tileEntity.getPos());
+	}
+
+	private synchronized void removeTileEntity(TileEntity tileEntity)
+	{
+		long key = ChunkPos.asLong(tileEntity.getPos().getX() >> 4, tileEntity.getPos().getZ() >> 4);
+		RegistryChunk chunk = chunks.get(key);
+		if(chunk != null && chunk.tileEntities.remove(tileEntity))
+		{
+			size--;
+			chunk.sectionCounts[(tileEntity.getPos().getY() >> 4) & 15]--;
+			if(chunk.tileEntities.isEmpty())
+				chunks.remove(key);
+		}
+	}
+	
+	private synchronized boolean hasInSection(int chunkX, int sectionY, int chunkZ)
+	{
+		RegistryChunk chunk = chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+		return chunk != null && chunk.sectionCounts[sectionY] > 0;
+	}
+
+	private synchronized List<TileEntity> collect(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ)
+	{
+		List<TileEntity> list = new ArrayList<>();
+		if((long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1) > chunks.size())
+		{
+			//Less chunks have tile entities than are in the region, so go through them instead
+			for(Long2ObjectMap.Entry<RegistryChunk> entry : chunks.long2ObjectEntrySet())
+			{
+				int chunkX = (int) entry.getLongKey();
+				int chunkZ = (int) (entry.getLongKey() >> 32);
+				if(chunkX >= minChunkX && chunkX <= maxChunkX && chunkZ >= minChunkZ && chunkZ <= maxChunkZ)
+					list.addAll(entry.getValue().tileEntities);
+			}
+		}
+		else
+		{
+			for(int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+				for(int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
+				{
+					RegistryChunk chunk = chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+					if(chunk != null)
+						list.addAll(chunk.tileEntities);
+				}
+		}
+		return list;
+	}
+
+	private synchronized int getSize()
+	{
+		return size;
+	}
+	
+	/**
+	 * The tile entities in a chunk, along with how many are in each of its 16 sections
+	 * @author Wyn Price
+	 *
+	 */
+	private static class RegistryChunk
+	{
+		private final ReferenceOpenHashSet<TileEntity> tileEntities = new ReferenceOpenHashSet<>();
+		private final int[] sectionCounts = new int[16];
+	}
+}
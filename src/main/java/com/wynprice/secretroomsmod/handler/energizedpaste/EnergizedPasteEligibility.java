@@ -0,0 +1,313 @@
+package com.wynprice.secretroomsmod.handler.energizedpaste;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.wynprice.secretroomsmod.SecretConfig;
+import com.wynprice.secretroomsmod.SecretRooms5;
+import com.wynprice.secretroomsmod.base.interfaces.ISecretMirrorable;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.common.event.FMLInterModComms.IMCMessage;
+
+/**
+ * Works out which blocks can be mirrored or replaced by Energized Paste, and caches the result per block.
+ * <br>The config lists and IMC messages are compiled into sets of blocks, and the blocks {@link ISecretMirrorable} methods (or the deprecated {@code SRM...} methods) are looked up once per class.
+ * The result for each block is then kept in an array indexed by block id, so checking a block is a single array lookup, unless the block has one of the methods, which are still called every time as they depend on the position.
+ * <br>Every block is worked out at post init. The cache is thrown away when the config changes, and worked out again as blocks are used.
+ * @author Wyn Price
+ *
+ */
+public class EnergizedPasteEligibility
+{
+	private static final byte COMPUTED = 1;
+	private static final byte MIRROR_BLACKLISTED = 1 << 1;
+	private static final byte REPLACEMENT_BLACKLISTED = 1 << 2;
+	private static final byte TILE_ENTITY_WHITELISTED = 1 << 3;
+	private static final byte HAS_MIRROR_METHOD = 1 << 4;
+	private static final byte HAS_REPLACE_METHOD = 1 << 5;
+	private static final byte HAS_TILE_ENTITY_METHOD = 1 << 6;
+
+	/**
+	 * The max amount of block ids Forge allows
+	 */
+	private static final int MAX_BLOCK_IDS = 4096;
+
+	/**
+	 * The flags for each block, indexed by {@link Block#getIdFromBlock(Block)}. 0 means the block hasnt been worked out yet.
+	 * <br>This is read from the chunk render threads. The result for a block never changes until the config does, so its fine if two threads work out the same block at once
+	 */
+	private static volatile byte[] flags = new byte[MAX_BLOCK_IDS];
+
+	/**
+	 * The config lists, compiled. Null if they need to be compiled again
+	 */
+	@Nullable
+	private static volatile CompiledConfig config;
+
+	/**
+	 * The checks each class makes itself, looked up the first time a class is used
+	 */
+	private static final ClassValue<Hooks> HOOKS = new ClassValue<Hooks>() {
+		@Override
+		protected Hooks computeValue(Class<?> type)
+		{
+			return new Hooks(type);
+		}
+	};
+	
+	/**
+	 * The registry names sent with IMC messages, keyed by the message key. Compiled into {@link #imcBlocks} at post init
+	 */
+	private static final Map<String, Set<ResourceLocation>> imcNames = new HashMap<>();
+	
+	/**
+	 * The blocks that have been allowed with IMC messages, keyed by the message key
+	 */
+	private static final Map<String, Set<Block>> imcBlocks = new HashMap<>();
+	
+	public static final String IMC_MIRRORABLE = "mirrorable";
+	public static final String IMC_REPLACEABLE = "replaceable";
+	public static final String IMC_TILE_ENTITY_OPT_IN = "tileEntityOptIn";
+
+	/**
+	 * @return true if the block can be used to be rendered on other blocks. The block should not have a tile entity
+	 */
+	public static boolean canBeMirrored(Block block, World world, IBlockState state, BlockPos pos)
+	{
+		int flags = getFlags(block);
+		if((flags & MIRROR_BLACKLISTED) == 0)
+			return true;
+		return (flags & HAS_MIRROR_METHOD) != 0 && HOOKS.get(block.getClass()).canBlockBeMirrored.test(block, world, state, pos);
+	}
+
+	/**
+	 * @return true if the block with a tile entity has opted in to being mirrored
+	 */
+	public static boolean tileEntityOptIn(Block block, World world, IBlockState state, BlockPos pos)
+	{
+		int flags = getFlags(block);
+		if((flags & TILE_ENTITY_WHITELISTED) != 0)
+			return true;
+		return (flags & HAS_TILE_ENTITY_METHOD) != 0 && HOOKS.get(block.getClass()).doesTileEntityOptIn.test(block, world, state, pos);
+	}
+
+	/**
+	 * @return true if the block can have its rendering changed
+	 */
+	public static boolean canBeReplaced(Block block, World world, IBlockState state, BlockPos pos)
+	{
+		int flags = getFlags(block);
+		if((flags & REPLACEMENT_BLACKLISTED) == 0)
+			return true;
+		return (flags & HAS_REPLACE_METHOD) != 0 && HOOKS.get(block.getClass()).canBlockBeReplaced.test(block, world, state, pos);
+	}
+
+	/**
+	 * Used to handle an IMC message sent to SRM
+	 * @param message the message. The key should be {@link #IMC_MIRRORABLE}, {@link #IMC_REPLACEABLE} or {@link #IMC_TILE_ENTITY_OPT_IN}, and the value the registry name of the block
+	 */
+	public static void onIMCMessage(IMCMessage message)
+	{
+		if(!message.key.equals(IMC_MIRRORABLE) && !message.key.equals(IMC_REPLACEABLE) && !message.key.equals(IMC_TILE_ENTITY_OPT_IN))
+		{
+			SecretRooms5.LOGGER.warn("Unknown IMC message {} from {}", message.key, message.getSender());
+			return;
+		}
+		ResourceLocation name;
+		if(message.isResourceLocationMessage())
+			name = message.getResourceLocationValue();
+		else if(message.isStringMessage())
+			name = new ResourceLocation(message.getStringValue());
+		else
+		{
+			SecretRooms5.LOGGER.warn("IMC message {} from {} should have the registry name of a block", message.key, message.getSender());
+			return;
+		}
+		imcNames.computeIfAbsent(message.key, key -> new HashSet<>()).add(name);
+	}
+	
+	/**
+	 * Called at post init. Resolves the blocks sent with IMC messages, then works out every registered block, 
+	 * so each class is only looked at once and the old {@code SRM...} methods are only found at startup
+	 */
+	public static void postInit()
+	{
+		for(Map.Entry<String, Set<ResourceLocation>> entry : imcNames.entrySet())
+			imcBlocks.put(entry.getKey(), compile(entry.getValue()));
+		invalidate();
+		for(Block block : Block.REGISTRY)
+			getFlags(block);
+	}
+	
+	/**
+	 * Throws away everything that has been worked out. Called when the config changes
+	 */
+	public static void invalidate()
+	{
+		config = null;
+		flags = new byte[MAX_BLOCK_IDS];
+	}
+
+	private static int getFlags(Block block)
+	{
+		int id = Block.getIdFromBlock(block);
+		byte[] flags = EnergizedPasteEligibility.flags;
+		if(id < 0 || id >= flags.length)
+			return computeFlags(block);
+		byte value = flags[id];
+		if(value == 0)
+			flags[id] = value = computeFlags(block);
+		return value;
+	}
+
+	private static byte computeFlags(Block block)
+	{
+		CompiledConfig config = EnergizedPasteEligibility.config;
+		if(config == null)
+			EnergizedPasteEligibility.config = config = new CompiledConfig();
+		Hooks hooks = HOOKS.get(block.getClass());
+		int value = COMPUTED;
+		if(config.mirrorBlacklist.contains(block) && !isIMCBlock(IMC_MIRRORABLE, block))
+			value |= MIRROR_BLACKLISTED;
+		if(config.replacementBlacklist.contains(block) && !isIMCBlock(IMC_REPLACEABLE, block))
+			value |= REPLACEMENT_BLACKLISTED;
+		if(config.tileEntityWhitelist.contains(block) || isIMCBlock(IMC_TILE_ENTITY_OPT_IN, block) || (block.getRegistryName() != null && config.tileEntityWhitelistDomains.contains(block.getRegistryName().getResourceDomain())))
+			value |= TILE_ENTITY_WHITELISTED;
+		if(hooks.canBlockBeMirrored != null)
+			value |= HAS_MIRROR_METHOD;
+		if(hooks.canBlockBeReplaced != null)
+			value |= HAS_REPLACE_METHOD;
+		if(hooks.doesTileEntityOptIn != null)
+			value |= HAS_TILE_ENTITY_METHOD;
+		return (byte) value;
+	}
+	
+	private static boolean isIMCBlock(String key, Block block)
+	{
+		Set<Block> blocks = imcBlocks.get(key);
+		return blocks != null && blocks.contains(block);
+	}
+	
+	private static Set<Block> compile(Iterable<ResourceLocation> names)
+	{
+		Set<Block> set = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(ResourceLocation name : names)
+			if(Block.REGISTRY.containsKey(name))
+				set.add(Block.REGISTRY.getObject(name));
+		return set;
+	}
+
+	/**
+	 * The config lists, turned into sets of blocks
+	 * @author Wyn Price
+	 *
+	 */
+	private static class CompiledConfig
+	{
+		private final Set<Block> mirrorBlacklist = compile(SecretConfig.ENERGIZED_PASTE.blacklistMirror);
+		private final Set<Block> replacementBlacklist = compile(SecretConfig.ENERGIZED_PASTE.replacementBlacklist);
+		private final Set<Block> tileEntityWhitelist = compile(SecretConfig.ENERGIZED_PASTE.tileEntityWhitelist);
+		private final Set<String> tileEntityWhitelistDomains = new HashSet<>();
+
+		private CompiledConfig()
+		{
+			for(String entry : SecretConfig.ENERGIZED_PASTE.tileEntityWhitelist)
+			{
+				ResourceLocation location = new ResourceLocation(entry);
+				if(location.getResourcePath().equals("*"))
+					tileEntityWhitelistDomains.add(location.getResourceDomain());
+			}
+		}
+
+		private static Set<Block> compile(String[] names)
+		{
+			List<ResourceLocation> locations = new ArrayList<>();
+			for(String name : names)
+				locations.add(new ResourceLocation(name));
+			return EnergizedPasteEligibility.compile(locations);
+		}
+	}
+
+	/**
+	 * A check that a block makes itself
+	 * @author Wyn Price
+	 *
+	 */
+	private static interface Hook
+	{
+		boolean test(Block block, World world, IBlockState state, BlockPos pos);
+	}
+
+	/**
+	 * The checks a block class makes itself, through {@link ISecretMirrorable} or the deprecated {@code SRM...} methods. Each is null if the class doesnt make that check
+	 * @author Wyn Price
+	 *
+	 */
+	private static class Hooks
+	{
+		@Nullable
+		private final Hook canBlockBeMirrored;
+		@Nullable
+		private final Hook doesTileEntityOptIn;
+		@Nullable
+		private final Hook canBlockBeReplaced;
+
+		private Hooks(Class<?> type)
+		{
+			if(ISecretMirrorable.class.isAssignableFrom(type))
+			{
+				canBlockBeMirrored = (block, world, state, pos) -> ((ISecretMirrorable)block).canBlockBeMirrored(world, state, pos);
+				doesTileEntityOptIn = (block, world, state, pos) -> ((ISecretMirrorable)block).doesTileEntityOptIn(world, state, pos);
+				canBlockBeReplaced = (block, world, state, pos) -> ((ISecretMirrorable)block).canBlockBeReplaced(world, state, pos);
+				return;
+			}
+			canBlockBeMirrored = findDeprecated(type, "SRMcanBlockBeMirrored");
+			doesTileEntityOptIn = findDeprecated(type, "SRMdoesTileEntityOptIn");
+			canBlockBeReplaced = findDeprecated(type, "SRMcanBlockBeReplaced");
+			if(canBlockBeMirrored != null || doesTileEntityOptIn != null || canBlockBeReplaced != null)
+				SecretRooms5.LOGGER.warn("{} uses the deprecated SRM... methods for Energized Paste. Implement {} instead", type.getName(), ISecretMirrorable.class.getName());
+		}
+
+		@Nullable
+		private static Hook findDeprecated(Class<?> type, String name)
+		{
+			MethodHandle handle;
+			try
+			{
+				Method method = type.getMethod(name, World.class, IBlockState.class, BlockPos.class);
+				handle = MethodHandles.publicLookup().unreflect(method).asType(MethodType.methodType(boolean.class, Block.class, World.class, IBlockState.class, BlockPos.class));
+			}
+			catch (Throwable e)
+			{
+				return null;
+			}
+			return (block, world, state, pos) -> {
+				try
+				{
+					return (boolean) handle.invokeExact(block, world, state, pos);
+				}
+				catch (Throwable e)
+				{
+					return false;
+				}
+			};
+		}
+	}
+}
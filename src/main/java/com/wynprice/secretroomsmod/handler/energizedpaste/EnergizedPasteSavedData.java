@@ -0,0 +1,70 @@
+package com.wynprice.secretroomsmod.handler.energizedpaste;
+
+import com.wynprice.secretroomsmod.SecretRooms5;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldSavedData;
+
+/**
+ * World wide Energized Paste data. As the paste itself is saved with each chunk, this only keeps track of how many times /resetenergized has been run,
+ * so chunks that were not loaded at the time can have their paste ignored when they next load.
+ * @author Wyn Price
+ *
+ */
+public class EnergizedPasteSavedData extends WorldSavedData
+{
+	private static final String NAME = SecretRooms5.MODID + "_energized_paste";
+
+	private int resetGeneration;
+
+	public EnergizedPasteSavedData(String name)
+	{
+		super(name);
+	}
+
+	/**
+	 * Gets the data for the world, creating it if needed. The data is shared between all dimensions
+	 * @param world any server world
+	 * @return the data
+	 */
+	public static EnergizedPasteSavedData get(World world)
+	{
+		MapStorage storage = world.getMapStorage();
+		EnergizedPasteSavedData data = (EnergizedPasteSavedData) storage.getOrLoadData(EnergizedPasteSavedData.class, NAME);
+		if(data == null)
+		{
+			data = new EnergizedPasteSavedData(NAME);
+			storage.setData(NAME, data);
+		}
+		return data;
+	}
+
+	public int getResetGeneration()
+	{
+		return resetGeneration;
+	}
+
+	/**
+	 * Called when /resetenergized is run
+	 */
+	public void incrementResetGeneration()
+	{
+		resetGeneration++;
+		markDirty();
+	}
+
+	@Override
+	public void readFromNBT(NBTTagCompound nbt)
+	{
+		resetGeneration = nbt.getInteger("ResetGeneration");
+	}
+
+	@Override
+	public NBTTagCompound writeToNBT(NBTTagCompound compound)
+	{
+		compound.setInteger("ResetGeneration", resetGeneration);
+		return compound;
+	}
+}
@@ -0,0 +1,314 @@
+package com.wynprice.secretroomsmod.handler.energizedpaste;
+
+import javax.annotation.Nullable;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongComparator;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTUtil;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Used to write Energized Paste to NBT, and read it back. There are two formats:
+ * <ul>
+ * <li>Chunk data: The paste in a single chunk. The entries are stored as an int array of {@code [local position, state index, replaced state index]}</li>
+ * <li>Store data: All the paste in a set of dimensions, used for the legacy file and for full syncs. Each dimension is a byte array of varints. 
+ * The positions are sorted by chunk and then delta encoded, meaning neighbouring blocks usually only take a byte or two.</li>
+ * </ul>
+ * In both, the states are written to a palette by registry name (via {@link NBTUtil#writeBlockState(NBTTagCompound, IBlockState)}), as state IDs can change between game launches.
+ * @author Wyn Price
+ *
+ */
+public class EnergizedPasteSerializer
+{
+	/**
+	 * The key used to store the data on the chunk
+	 */
+	public static final String CHUNK_TAG = "SecretRoomsMod";
+
+	private static final int DATA_VERSION = 1;
+	
+	/**
+	 * The version of the store data. Version 1 is the old layout of one compound per block, keyed by {@code "x y z"}, which can still be read
+	 */
+	private static final int STORE_DATA_VERSION = 2;
+	
+	/**
+	 * The palette ID used for a block that dosnt exist anymore
+	 */
+	private static final int MISSING = -1;
+	
+	/**
+	 * Sorts positions by chunk, then by position
+	 */
+	private static final LongComparator CHUNK_ORDER = (a, b) -> {
+		int chunkCompare = Long.compare(chunkKey(a), chunkKey(b));
+		return chunkCompare != 0 ? chunkCompare : Long.compare(a, b);
+	};
+
+	/**
+	 * Writes the paste in the chunk to NBT
+	 * @param store the store to get the paste from. Can be null, in which case an empty tag is written
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @param resetGeneration the current reset generation. See {@link #getResetGeneration(NBTTagCompound)}
+	 * @return the compound
+	 */
+	public static NBTTagCompound writeChunk(@Nullable EnergizedPasteStore store, int chunkX, int chunkZ, int resetGeneration)
+	{
+		NBTTagList palette = new NBTTagList();
+		Int2IntOpenHashMap paletteIndices = new Int2IntOpenHashMap();
+		paletteIndices.defaultReturnValue(-1);
+		IntArrayList entries = new IntArrayList();
+		if(store != null)
+			store.forEachInChunk(chunkX, chunkZ, (pos, stateId, replacedStateId) -> {
+				entries.add(toLocal(BlockPos.fromLong(pos)));
+				entries.add(getPaletteIndex(palette, paletteIndices, stateId));
+				entries.add(getPaletteIndex(palette, paletteIndices, replacedStateId));
+			});
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setInteger("DataVersion", DATA_VERSION);
+		nbt.setInteger("ResetGeneration", resetGeneration);
+		nbt.setTag("Palette", palette);
+		nbt.setIntArray("Entries", entries.toIntArray());
+		return nbt;
+	}
+
+	/**
+	 * Reads the paste written by {@link #writeChunk(EnergizedPasteStore, int, int, int)} into the builder.
+	 * Every entry is checked before any are added, so nothing is added if the data is corrupt. Entries with a block that no longer exists (like from a removed mod) are skipped
+	 * @param nbt the compound
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @param builder the builder to add the paste to
+	 * @throws IllegalArgumentException if the data version is unknown, or the data is corrupt
+	 */
+	public static void readChunk(NBTTagCompound nbt, int chunkX, int chunkZ, EnergizedPasteStore.Builder builder)
+	{
+		int v = nbt.getInteger("DataVersion");
+		if(v != DATA_VERSION)
+			throw new IllegalArgumentException("Energized Paste dosnt know how to handle chunk data version " + v);
+		int[] paletteIds = readPalette(nbt.getTagList("Palette", 10));
+		int[] entries = nbt.getIntArray("Entries");
+		if(entries.length % 3 != 0)
+			throw new IllegalArgumentException("Energized Paste chunk data has " + entries.length + " entry values, which isnt a multiple of 3");
+		for(int i = 0; i < entries.length; i += 3)
+		{
+			if(entries[i] < 0 || entries[i] >= 1 << 16)
+				throw new IllegalArgumentException("Energized Paste chunk data has an invalid position " + entries[i]);
+			getPaletteId(paletteIds, entries[i + 1]);
+			getPaletteId(paletteIds, entries[i + 2]);
+		}
+		for(int i = 0; i < entries.length; i += 3)
+		{
+			int stateId = paletteIds[entries[i + 1]];
+			int replacedStateId = paletteIds[entries[i + 2]];
+			if(stateId != MISSING && replacedStateId != MISSING)
+				builder.put(fromLocal(chunkX, chunkZ, entries[i]).toLong(), stateId, replacedStateId);
+		}
+	}
+
+	/**
+	 * Writes all the stores to NBT
+	 * @param stores the stores, keyed by dimension
+	 * @return the compound
+	 */
+	public static NBTTagCompound writeStores(Int2ObjectMap<EnergizedPasteStore> stores)
+	{
+		NBTTagList palette = new NBTTagList();
+		Int2IntOpenHashMap paletteIndices = new Int2IntOpenHashMap();
+		paletteIndices.defaultReturnValue(-1);
+		NBTTagCompound worlds = new NBTTagCompound();
+		IntArrayList dimensions = new IntArrayList();
+		for(Int2ObjectMap.Entry<EnergizedPasteStore> entry : stores.int2ObjectEntrySet())
+		{
+			LongArrayList positions = new LongArrayList(entry.getValue().size());
+			Long2LongOpenHashMap indices = new Long2LongOpenHashMap(entry.getValue().size());
+			entry.getValue().forEach((pos, stateId, replacedStateId) -> {
+				positions.add(pos);
+				indices.put(pos, ((long)getPaletteIndex(palette, paletteIndices, stateId) << 32) | getPaletteIndex(palette, paletteIndices, replacedStateId));
+			});
+			long[] sorted = positions.toLongArray();
+			LongArrays.quickSort(sorted, CHUNK_ORDER);
+			PacketBuffer buf = new PacketBuffer(Unpooled.buffer());
+			buf.writeVarInt(sorted.length);
+			long previous = 0;
+			for(long pos : sorted)
+			{
+				long delta = pos - previous;
+				buf.writeVarLong((delta << 1) ^ (delta >> 63)); //Zigzag, so small negative deltas are small too
+				buf.writeVarInt((int) (indices.get(pos) >>> 32));
+				buf.writeVarInt((int) indices.get(pos));
+				previous = pos;
+			}
+			byte[] bytes = new byte[buf.readableBytes()];
+			buf.readBytes(bytes);
+			worlds.setByteArray(String.valueOf(entry.getIntKey()), bytes);
+			dimensions.add(entry.getIntKey());
+		}
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setInteger("DataVersion", STORE_DATA_VERSION);
+		nbt.setTag("Palette", palette);
+		nbt.setIntArray("Dimensions", dimensions.toIntArray());
+		nbt.setTag("Worlds", worlds);
+		return nbt;
+	}
+	
+	/**
+	 * Reads the stores written by {@link #writeStores(Int2ObjectMap)}. Data from before the store data was versioned is migrated from the old layout.
+	 * @param nbt the compound
+	 * @return the stores, keyed by dimension
+	 */
+	public static Int2ObjectOpenHashMap<EnergizedPasteStore> readStores(NBTTagCompound nbt)
+	{
+		if(!nbt.hasKey("DataVersion", 99))
+			return readLegacyStores(nbt);
+		int v = nbt.getInteger("DataVersion");
+		if(v != STORE_DATA_VERSION)
+			throw new IllegalArgumentException("Energized Paste dosnt know how to handle store data version " + v);
+		int[] paletteIds = readPalette(nbt.getTagList("Palette", 10));
+		Int2ObjectOpenHashMap<EnergizedPasteStore> stores = new Int2ObjectOpenHashMap<>();
+		NBTTagCompound worlds = nbt.getCompoundTag("Worlds");
+		for(int dimension : nbt.getIntArray("Dimensions"))
+		{
+			PacketBuffer buf = new PacketBuffer(Unpooled.wrappedBuffer(worlds.getByteArray(String.valueOf(dimension))));
+			EnergizedPasteStore.Builder builder = new EnergizedPasteStore.Builder();
+			try
+			{
+				int size = buf.readVarInt();
+				long previous = 0;
+				for(int i = 0; i < size; i++)
+				{
+					long zigzag = buf.readVarLong();
+					long pos = previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+					int stateId = getPaletteId(paletteIds, buf.readVarInt());
+					int replacedStateId = getPaletteId(paletteIds, buf.readVarInt());
+					if(stateId != MISSING && replacedStateId != MISSING)
+						builder.put(pos, stateId, replacedStateId);
+					previous = pos;
+				}
+			}
+			catch (IndexOutOfBoundsException | DecoderException e) 
+			{
+				throw new IllegalArgumentException("Energized Paste store data for dimension " + dimension + " is truncated or corrupt", e);
+			}
+			stores.put(dimension, builder.build());
+		}
+		return stores;
+	}
+	
+	/**
+	 * Reads the stores from the old layout, which had one compound per block keyed by the string {@code "x y z"}
+	 * @param nbt the compound
+	 * @return the stores, keyed by dimension
+	 */
+	private static Int2ObjectOpenHashMap<EnergizedPasteStore> readLegacyStores(NBTTagCompound nbt)
+	{
+		Int2ObjectOpenHashMap<EnergizedPasteStore> stores = new Int2ObjectOpenHashMap<>();
+		NBTTagCompound world_info = nbt.getCompoundTag("info");
+		for(int dimension : world_info.getIntArray("dimensions"))
+		{
+			NBTTagCompound nbt_world = nbt.getCompoundTag("worlds").getCompoundTag("dimension_" + String.valueOf(dimension));
+			int[] blockpos = nbt_world.getIntArray("blockpos");
+			EnergizedPasteStore.Builder builder = new EnergizedPasteStore.Builder();
+			for(int i = 0; i + 2 < blockpos.length; i+=3)
+			{
+				NBTTagCompound nbt_blockstate = nbt_world.getCompoundTag(String.valueOf(blockpos[i]) + " " + String.valueOf(blockpos[i + 1]) + " " + String.valueOf(blockpos[i + 2]));
+				ResourceLocation block = new ResourceLocation(nbt_blockstate.getString("block"));
+				ResourceLocation replaceBlock = new ResourceLocation(nbt_blockstate.getString("replace_block"));
+				if(!Block.REGISTRY.containsKey(block) || !Block.REGISTRY.containsKey(replaceBlock)) //The registry gives air for missing blocks, which shouldnt be pasted
+					continue;
+				builder.put(new BlockPos(blockpos[i], blockpos[i + 1], blockpos[i + 2]).toLong(),
+						Block.getStateId(Block.REGISTRY.getObject(block).getStateFromMeta(nbt_blockstate.getInteger("meta"))),
+						Block.getStateId(Block.REGISTRY.getObject(replaceBlock).getStateFromMeta(nbt_blockstate.getInteger("replace_meta"))));
+			}
+			stores.put(dimension, builder.build());
+		}
+		return stores;
+	}
+
+	/**
+	 * @param nbt the compound written by {@link #writeChunk(EnergizedPasteStore, int, int, int)}
+	 * @return the reset generation the chunk was saved with. If this is older than the current generation, /resetenergized has been run since and the paste should be ignored
+	 */
+	public static int getResetGeneration(NBTTagCompound nbt)
+	{
+		return nbt.getInteger("ResetGeneration");
+	}
+
+	/**
+	 * @param pos the position
+	 * @return the position inside its chunk, as {@code (y << 8) | (z << 4) | x}
+	 */
+	public static int toLocal(BlockPos pos)
+	{
+		return (pos.getY() << 8) | ((pos.getZ() & 15) << 4) | (pos.getX() & 15);
+	}
+	
+	/**
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @param local the position inside the chunk, from {@link #toLocal(BlockPos)}
+	 * @return the world position
+	 */
+	public static BlockPos fromLocal(int chunkX, int chunkZ, int local)
+	{
+		return new BlockPos((chunkX << 4) | (local & 15), local >> 8, (chunkZ << 4) | ((local >> 4) & 15));
+	}
+
+	private static long chunkKey(long pos)
+	{
+		BlockPos blockpos = BlockPos.fromLong(pos);
+		return ChunkPos.asLong(blockpos.getX() >> 4, blockpos.getZ() >> 4);
+	}
+
+	/**
+	 * Reads the state IDs in the palette. {@link NBTUtil#readBlockState(NBTTagCompound)} gives air for blocks that dont exist anymore (like from a removed mod),
+	 * so those are set to {@link #MISSING} instead, and the paste using them is skipped
+	 * @param palette the palette
+	 * @return the state IDs, by palette index
+	 */
+	private static int[] readPalette(NBTTagList palette)
+	{
+		int[] paletteIds = new int[palette.tagCount()];
+		for(int i = 0; i < paletteIds.length; i++)
+		{
+			NBTTagCompound tag = palette.getCompoundTagAt(i);
+			paletteIds[i] = Block.REGISTRY.containsKey(new ResourceLocation(tag.getString("Name"))) ? Block.getStateId(NBTUtil.readBlockState(tag)) : MISSING;
+		}
+		return paletteIds;
+	}
+	
+	private static int getPaletteId(int[] paletteIds, int index)
+	{
+		if(index < 0 || index >= paletteIds.length)
+			throw new IllegalArgumentException("Energized Paste data has palette index " + index + ", but the palette only has " + paletteIds.length + " entries");
+		return paletteIds[index];
+	}
+
+	private static int getPaletteIndex(NBTTagList palette, Int2IntOpenHashMap paletteIndices, int stateId)
+	{
+		int index = paletteIndices.get(stateId);
+		if(index == -1)
+		{
+			index = palette.tagCount();
+			palette.appendTag(NBTUtil.writeBlockState(new NBTTagCompound(), Block.getStateById(stateId)));
+			paletteIndices.put(stateId, index);
+		}
+		return index;
+	}
+}
@@ -0,0 +1,453 @@
+package com.wynprice.secretroomsmod.handler.energizedpaste;
+
+import java.util.function.LongConsumer;
+
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Holds all the Energized Paste for one dimension.
+ * <br>Positions are stored as packed longs ({@link BlockPos#toLong()}), bucketed by the chunk they are in, and the states are stored as their state IDs ({@link Block#getStateId(IBlockState)}).
+ * <br>This means every lookup is a couple of primitive hash lookups, with no objects being created.
+ * <br><br>
+ * The store is read from the chunk render threads while the client thread is changing it, so every chunk is kept as an immutable snapshot.
+ * Writers lock the store, copy the chunk they are changing and then publish the new snapshot. Readers never lock, and will always see either the whole old chunk or the whole new chunk.
+ * @author Wyn Price
+ *
+ */
+public class EnergizedPasteStore
+{
+	/**
+	 * Returned by the inner maps when there is no entry. As state IDs are never negative, a real entry can never be this.
+	 */
+	private static final long NO_ENTRY = -1L;
+
+	/**
+	 * The chunk slots, keyed by {@link ChunkPos#asLong(int, int)}. This map is never changed once its been published, it is copied and replaced when a slot is added or removed.
+	 */
+	private volatile Long2ObjectOpenHashMap<ChunkSlot> chunks;
+
+	/**
+	 * The total amount of pasted positions in this store
+	 */
+	private volatile int size;
+
+	public EnergizedPasteStore()
+	{
+		this(new Long2ObjectOpenHashMap<>(), 0);
+	}
+
+	private EnergizedPasteStore(Long2ObjectOpenHashMap<ChunkSlot> chunks, int size)
+	{
+		this.chunks = chunks;
+		this.size = size;
+	}
+
+	/**
+	 * Puts the paste into the store, overriding anything already at that position
+	 * @param pos the position
+	 * @param state the state used to render with
+	 * @param replacedState the state thats been replaced
+	 */
+	public void put(BlockPos pos, IBlockState state, IBlockState replacedState)
+	{
+		put(pos.toLong(), Block.getStateId(state), Block.getStateId(replacedState));
+	}
+
+	/**
+	 * Puts the paste into the store, overriding anything already at that position
+	 * @param pos the packed position
+	 * @param stateId the state ID used to render with
+	 * @param replacedStateId the state ID thats been replaced
+	 */
+	public synchronized void put(long pos, int stateId, int replacedStateId)
+	{
+		BlockPos blockpos = BlockPos.fromLong(pos);
+		long key = ChunkPos.asLong(blockpos.getX() >> 4, blockpos.getZ() >> 4);
+		ChunkSlot slot = chunks.get(key);
+		PasteChunk chunk = slot == null ? new PasteChunk() : slot.snapshot.copy();
+		boolean added = chunk.put(pos, blockpos.getY(), pack(stateId, replacedStateId));
+		if(slot == null)
+		{
+			Long2ObjectOpenHashMap<ChunkSlot> newChunks = new Long2ObjectOpenHashMap<>(chunks);
+			newChunks.put(key, new ChunkSlot(chunk));
+			chunks = newChunks;
+		}
+		else
+			slot.snapshot = chunk;
+		if(added)
+			size++;
+	}
+
+	/**
+	 * Removes the paste at the position
+	 * @param pos the position
+	 * @return true if there was paste at the position
+	 */
+	public synchronized boolean remove(BlockPos pos)
+	{
+		long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+		ChunkSlot slot = chunks.get(key);
+		if(slot == null || slot.snapshot.entries.get(pos.toLong()) == NO_ENTRY)
+			return false;
+		PasteChunk chunk = slot.snapshot.copy();
+		chunk.remove(pos.toLong(), pos.getY());
+		if(chunk.isEmpty())
+		{
+			Long2ObjectOpenHashMap<ChunkSlot> newChunks = new Long2ObjectOpenHashMap<>(chunks);
+			newChunks.remove(key);
+			chunks = newChunks;
+		}
+		slot.snapshot = chunk;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Replaces all the paste in a chunk with the paste from the builder. Used when a chunk is loaded or synced as a whole.
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @param builder the builder, which should only contain positions in this chunk
+	 */
+	public synchronized void replaceChunk(int chunkX, int chunkZ, Builder builder)
+	{
+		long key = ChunkPos.asLong(chunkX, chunkZ);
+		PasteChunk chunk = builder.chunks.get(key);
+		if(chunk == null || chunk.isEmpty())
+		{
+			removeChunk(chunkX, chunkZ);
+			return;
+		}
+		chunk = chunk.copy();
+		ChunkSlot slot = chunks.get(key);
+		if(slot == null)
+		{
+			Long2ObjectOpenHashMap<ChunkSlot> newChunks = new Long2ObjectOpenHashMap<>(chunks);
+			newChunks.put(key, new ChunkSlot(chunk));
+			chunks = newChunks;
+			size += chunk.entries.size();
+		}
+		else
+		{
+			//The new snapshot is swapped straight in, so readers never see the chunk empty in between
+			size += chunk.entries.size() - slot.snapshot.entries.size();
+			slot.snapshot = chunk;
+		}
+	}
+
+	/**
+	 * Removes all the paste in a chunk. Used when a chunk is unloaded
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @return the amount of positions removed
+	 */
+	public synchronized int removeChunk(int chunkX, int chunkZ)
+	{
+		long key = ChunkPos.asLong(chunkX, chunkZ);
+		ChunkSlot slot = chunks.get(key);
+		if(slot == null)
+			return 0;
+		int removed = slot.snapshot.entries.size();
+		Long2ObjectOpenHashMap<ChunkSlot> newChunks = new Long2ObjectOpenHashMap<>(chunks);
+		newChunks.remove(key);
+		chunks = newChunks;
+		slot.snapshot = new PasteChunk();
+		size -= removed;
+		return removed;
+	}
+
+	/**
+	 * @param pos the position
+	 * @return true if there is paste at the position
+	 */
+	public boolean contains(BlockPos pos)
+	{
+		return getPacked(pos) != NO_ENTRY;
+	}
+
+	/**
+	 * @param pos the position
+	 * @return the state used to render with, or null if there is no paste at the position
+	 */
+	public IBlockState getState(BlockPos pos)
+	{
+		long packed = getPacked(pos);
+		return packed == NO_ENTRY ? null : Block.getStateById(stateId(packed));
+	}
+
+	/**
+	 * @param pos the position
+	 * @return the state that was replaced by the paste, or null if there is no paste at the position
+	 */
+	public IBlockState getReplacedState(BlockPos pos)
+	{
+		long packed = getPacked(pos);
+		return packed == NO_ENTRY ? null : Block.getStateById(replacedStateId(packed));
+	}
+
+	/**
+	 * Used as a fast path to check if a whole chunk section can be skipped
+	 * @param chunkX the chunk x
+	 * @param sectionY the section y (block y >> 4)
+	 * @param chunkZ the chunk z
+	 * @return true if there is any paste in the chunk section
+	 */
+	public boolean hasPasteInSection(int chunkX, int sectionY, int chunkZ)
+	{
+		ChunkSlot slot = chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+		return slot != null && sectionY >= 0 && sectionY < 16 && slot.snapshot.sectionCounts[sectionY] > 0;
+	}
+
+	/**
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @return true if there is any paste in the chunk
+	 */
+	public boolean hasPasteInChunk(int chunkX, int chunkZ)
+	{
+		ChunkSlot slot = chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+		return slot != null && !slot.snapshot.isEmpty();
+	}
+
+	/**
+	 * Runs the consumer on every entry in the store. Each chunk is read from one snapshot, so this is safe to call from any thread.
+	 * @param consumer the consumer
+	 */
+	public void forEach(PasteConsumer consumer)
+	{
+		for(ChunkSlot slot : chunks.values())
+			for(Long2LongMap.Entry entry : slot.snapshot.entries.long2LongEntrySet())
+				consumer.accept(entry.getLongKey(), stateId(entry.getLongValue()), replacedStateId(entry.getLongValue()));
+	}
+
+	/**
+	 * Runs the consumer on every entry in one chunk
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @param consumer the consumer
+	 */
+	public void forEachInChunk(int chunkX, int chunkZ, PasteConsumer consumer)
+	{
+		ChunkSlot slot = chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+		if(slot != null)
+			for(Long2LongMap.Entry entry : slot.snapshot.entries.long2LongEntrySet())
+				consumer.accept(entry.getLongKey(), stateId(entry.getLongValue()), replacedStateId(entry.getLongValue()));
+	}
+
+	/**
+	 * Runs the consumer on every position that has different paste in the two stores, including positions that only have paste in one of them. Safe to call from any thread
+	 * @param from the old store, or null if there was none
+	 * @param to the new store, or null if there is none
+	 * @param consumer the consumer, given the packed position
+	 */
+	public static void forEachDifference(@Nullable EnergizedPasteStore from, @Nullable EnergizedPasteStore to, LongConsumer consumer)
+	{
+		if(from != null)
+			from.forEach((pos, stateId, replacedStateId) -> {
+				if(to == null || to.getPacked(pos) != pack(stateId, replacedStateId))
+					consumer.accept(pos);
+			});
+		if(to != null)
+			to.forEach((pos, stateId, replacedStateId) -> {
+				if(from == null || from.getPacked(pos) == NO_ENTRY)
+					consumer.accept(pos);
+			});
+	}
+
+	/**
+	 * @return the amount of pasted positions
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return true if there is no paste in this store
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Removes everything from the store
+	 */
+	public synchronized void clear()
+	{
+		chunks = new Long2ObjectOpenHashMap<>();
+		size = 0;
+	}
+
+	private long getPacked(BlockPos pos)
+	{
+		ChunkSlot slot = chunks.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+		return slot == null ? NO_ENTRY : slot.snapshot.entries.get(pos.toLong());
+	}
+
+	private long getPacked(long pos)
+	{
+		return getPacked(BlockPos.fromLong(pos));
+	}
+
+	private static long pack(int stateId, int replacedStateId)
+	{
+		return ((long)stateId << 32) | (replacedStateId & 0xFFFFFFFFL);
+	}
+
+	private static int stateId(long packed)
+	{
+		return (int) (packed >>> 32);
+	}
+
+	private static int replacedStateId(long packed)
+	{
+		return (int) packed;
+	}
+
+	/**
+	 * Consumer used to iterate over the store without boxing
+	 * @author Wyn Price
+	 *
+	 */
+	public static interface PasteConsumer
+	{
+		/**
+		 * @param pos the packed position
+		 * @param stateId the state ID used to render with
+		 * @param replacedStateId the state ID that was replaced
+		 */
+		public void accept(long pos, int stateId, int replacedStateId);
+	}
+
+	/**
+	 * Used to fill a store in bulk (such as when loading from disk), without copying a chunk for every position.
+	 * The store is only created once everything has been added, so nothing can read it half filled.
+	 * @author Wyn Price
+	 *
+	 */
+	public static class Builder
+	{
+		private final Long2ObjectOpenHashMap<PasteChunk> chunks = new Long2ObjectOpenHashMap<>();
+		private int size;
+
+		/**
+		 * @param pos the packed position
+		 * @param stateId the state ID used to render with
+		 * @param replacedStateId the state ID thats been replaced
+		 * @return this
+		 */
+		public Builder put(long pos, int stateId, int replacedStateId)
+		{
+			BlockPos blockpos = BlockPos.fromLong(pos);
+			long key = ChunkPos.asLong(blockpos.getX() >> 4, blockpos.getZ() >> 4);
+			PasteChunk chunk = chunks.get(key);
+			if(chunk == null)
+			{
+				chunk = new PasteChunk();
+				chunks.put(key, chunk);
+			}
+			if(chunk.put(pos, blockpos.getY(), pack(stateId, replacedStateId)))
+				size++;
+			return this;
+		}
+
+		/**
+		 * @return true if nothing has been added
+		 */
+		public boolean isEmpty()
+		{
+			return size == 0;
+		}
+
+		/**
+		 * @return the filled store
+		 */
+		public EnergizedPasteStore build()
+		{
+			Long2ObjectOpenHashMap<ChunkSlot> slots = new Long2ObjectOpenHashMap<>(chunks.size());
+			for(Long2ObjectMap.Entry<PasteChunk> entry : chunks.long2ObjectEntrySet())
+				slots.put(entry.getLongKey(), new ChunkSlot(entry.getValue()));
+			return new EnergizedPasteStore(slots, size);
+		}
+	}
+
+	/**
+	 * Holds the current snapshot of one chunk. The slot stays in place while its chunk is being changed, so changing a chunk dosnt need the outer map to be copied.
+	 * @author Wyn Price
+	 *
+	 */
+	private static class ChunkSlot
+	{
+		private volatile PasteChunk snapshot;
+
+		private ChunkSlot(PasteChunk snapshot)
+		{
+			this.snapshot = snapshot;
+		}
+	}
+
+	/**
+	 * All the paste in one chunk, along with how many pasted blocks are in each of its sections.
+	 * Only changed before it is published, after that its treated as immutable
+	 * @author Wyn Price
+	 *
+	 */
+	private static class PasteChunk
+	{
+		private final Long2LongOpenHashMap entries;
+		private final int[] sectionCounts;
+
+		private PasteChunk()
+		{
+			this(new Long2LongOpenHashMap(), new int[16]);
+		}
+
+		private PasteChunk(Long2LongOpenHashMap entries, int[] sectionCounts)
+		{
+			this.entries = entries;
+			this.sectionCounts = sectionCounts;
+			this.entries.defaultReturnValue(NO_ENTRY);
+		}
+
+		private PasteChunk copy()
+		{
+			return new PasteChunk(new Long2LongOpenHashMap(entries), sectionCounts.clone());
+		}
+
+		/**
+		 * @return true if the position was newly added
+		 */
+		private boolean put(long pos, int y, long packed)
+		{
+			if(entries.put(pos, packed) != NO_ENTRY)
+				return false;
+			sectionCounts[(y >> 4) & 15]++;
+			return true;
+		}
+
+		/**
+		 * @return true if the position was removed
+		 */
+		private boolean remove(long pos, int y)
+		{
+			if(entries.remove(pos) == NO_ENTRY)
+				return false;
+			sectionCounts[(y >> 4) & 15]--;
+			return true;
+		}
+
+		private boolean isEmpty()
+		{
+			return entries.isEmpty();
+		}
+	}
+}
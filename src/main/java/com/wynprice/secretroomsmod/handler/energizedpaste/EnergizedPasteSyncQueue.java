@@ -0,0 +1,92 @@
+package com.wynprice.secretroomsmod.handler.energizedpaste;
+
+import javax.annotation.Nullable;
+
+import com.wynprice.secretroomsmod.network.SecretNetwork;
+import com.wynprice.secretroomsmod.network.packets.MessagePacketSyncEnergizedPaste;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.WorldServer;
+
+/**
+ * Used to batch up the Energized Paste changes in a dimension. Every change to a chunk during a tick is sent in one packet at the end of the tick.
+ * <br>Only the positions are kept, and the paste is read from the store when its sent, so setting and then removing paste in the same tick only sends the removal.
+ * @author Wyn Price
+ *
+ */
+public class EnergizedPasteSyncQueue
+{
+	/**
+	 * The changed positions, keyed by {@link ChunkPos#asLong(int, int)}
+	 */
+	private Long2ObjectOpenHashMap<LongOpenHashSet> changed = new Long2ObjectOpenHashMap<>();
+
+	/**
+	 * Marks the position as changed. Can be called from any thread
+	 * @param pos the position
+	 */
+	public synchronized void markChanged(BlockPos pos)
+	{
+		long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+		LongOpenHashSet positions = changed.get(key);
+		if(positions == null)
+			changed.put(key, positions = new LongOpenHashSet());
+		positions.add(pos.toLong());
+	}
+
+	/**
+	 * Sends all the changes to the players watching each chunk
+	 * @param world the world
+	 * @param store the store to read the paste from. Can be null, in which case everything is sent as removed
+	 */
+	public void flush(WorldServer world, @Nullable EnergizedPasteStore store)
+	{
+		Long2ObjectOpenHashMap<LongOpenHashSet> toSend;
+		synchronized (this)
+		{
+			if(changed.isEmpty())
+				return;
+			toSend = changed;
+			changed = new Long2ObjectOpenHashMap<>();
+		}
+		int dim = world.provider.getDimension();
+		for(Long2ObjectMap.Entry<LongOpenHashSet> entry : toSend.long2ObjectEntrySet())
+		{
+			int chunkX = (int) entry.getLongKey();
+			int chunkZ = (int) (entry.getLongKey() >> 32);
+			IntArrayList palette = new IntArrayList();
+			Int2IntOpenHashMap paletteIndices = new Int2IntOpenHashMap();
+			paletteIndices.defaultReturnValue(-1);
+			IntArrayList entries = new IntArrayList(entry.getValue().size() * 2);
+			for(LongIterator iterator = entry.getValue().iterator(); iterator.hasNext();)
+			{
+				BlockPos pos = BlockPos.fromLong(iterator.nextLong());
+				IBlockState state = store == null ? null : store.getState(pos);
+				entries.add(EnergizedPasteSerializer.toLocal(pos));
+				if(state == null)
+					entries.add(0); //0 is used for removed paste
+				else
+				{
+					int stateId = Block.getStateId(state);
+					int index = paletteIndices.get(stateId);
+					if(index == -1)
+					{
+						paletteIndices.put(stateId, index = palette.size());
+						palette.add(stateId);
+					}
+					entries.add(index + 1);
+				}
+			}
+			SecretNetwork.sendToPlayersTrackingChunk(world, new ChunkPos(chunkX, chunkZ), new MessagePacketSyncEnergizedPaste(dim, chunkX, chunkZ, palette.toIntArray(), entries.toIntArray()));
+		}
+	}
+}
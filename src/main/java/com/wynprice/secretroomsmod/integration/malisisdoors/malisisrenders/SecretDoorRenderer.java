@@ -3,7 +3,6 @@ package com.wynprice.secretroomsmod.integration.malisisdoors.malisisrenders;
 import java.util.List;
 
 import com.wynprice.secretroomsmod.SecretBlocks;
-import com.wynprice.secretroomsmod.SecretRooms5;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
 import com.wynprice.secretroomsmod.integration.malisisdoors.SecretBlockIconProvider;
@@ -11,8 +10,8 @@ import com.wynprice.secretroomsmod.integration.malisisdoors.SecretRenderParamete
 import com.wynprice.secretroomsmod.integration.malisisdoors.registries.blocks.SecretMalisisDoorBlock;
 import com.wynprice.secretroomsmod.integration.malisisdoors.registries.tileentities.SecretMalisisTileEntityDoor;
 import com.wynprice.secretroomsmod.items.TrueSightHelmet;
-import com.wynprice.secretroomsmod.render.fakemodels.FakeBlockModel;
 import com.wynprice.secretroomsmod.render.fakemodels.TrueSightModel;
+import com.wynprice.secretroomsmod.render.fakemodels.TrueSightModelRegistry;
 
 import net.malisis.core.block.IComponent;
 import net.malisis.core.renderer.RenderParameters;
@@ -36,7 +35,6 @@ import net.minecraft.client.renderer.block.model.BlockFaceUV;
 import net.minecraft.inventory.EntityEquipmentSlot;
 import net.minecraft.util.BlockRenderLayer;
 import net.minecraft.util.EnumFacing;
-import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.EnumFacing.Axis;
 import net.minecraft.util.math.MathHelper;
 import net.minecraftforge.client.ForgeHooksClient;
@@ -118,7 +116,7 @@ public class SecretDoorRenderer extends DoorRenderer
 
 					sParams.quadSprite.set(icon);
 					if(TrueSightHelmet.isHelmet()) {
-						sParams.quadSprite.set(FakeBlockModel.getModel(new ResourceLocation(SecretRooms5.MODID, "block/secret_" + (block == SecretBlocks.SECRET_WOODEN_DOOR ? "wooden" : "iron") + "_door")).getParticleTexture());
+						sParams.quadSprite.set(TrueSightModelRegistry.getModel(block == SecretBlocks.SECRET_WOODEN_DOOR ? SecretBlocks.SECRET_WOODEN_DOOR : SecretBlocks.SECRET_IRON_DOOR).getParticleTexture());
 					}
 					if(!quad.hasTintIndex() || Minecraft.getMinecraft().player.getItemStackFromSlot(EntityEquipmentSlot.HEAD).getItem() instanceof TrueSightHelmet) {
 						sParams.colorMultiplier.set(-1);
@@ -3,7 +3,6 @@ package com.wynprice.secretroomsmod.integration.malisisdoors.malisisrenders;
 import java.util.List;
 
 import com.wynprice.secretroomsmod.SecretBlocks;
-import com.wynprice.secretroomsmod.SecretRooms5;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
 import com.wynprice.secretroomsmod.integration.malisisdoors.SecretBlockIconProvider;
@@ -11,7 +10,7 @@ import com.wynprice.secretroomsmod.integration.malisisdoors.SecretRenderParamete
 import com.wynprice.secretroomsmod.integration.malisisdoors.registries.blocks.SecretMalisisTrapDoorBlock;
 import com.wynprice.secretroomsmod.integration.malisisdoors.registries.tileentities.SecretMalisisTileEntityTrapDoor;
 import com.wynprice.secretroomsmod.items.TrueSightHelmet;
-import com.wynprice.secretroomsmod.render.fakemodels.FakeBlockModel;
+import com.wynprice.secretroomsmod.render.fakemodels.TrueSightModelRegistry;
 
 import net.malisis.core.renderer.RenderParameters;
 import net.malisis.core.renderer.RenderType;
@@ -39,7 +38,6 @@ import net.minecraft.inventory.EntityEquipmentSlot;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.BlockRenderLayer;
 import net.minecraft.util.EnumFacing;
-import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.EnumFacing.Axis;
 import net.minecraft.util.math.MathHelper;
 import net.minecraftforge.client.ForgeHooksClient;
@@ -148,7 +146,7 @@ public class SecretTrapDoorRenderer extends TrapDoorRenderer {
 					
 					sParams.quadSprite.set(icon);
 					if(TrueSightHelmet.isHelmet()) {
-						sParams.quadSprite.set(FakeBlockModel.getModel(new ResourceLocation(SecretRooms5.MODID, "block/secret_" + (block == SecretBlocks.SECRET_WOODEN_TRAPDOOR ? "wooden" : "iron") + "_trapdoor")).getParticleTexture());
+						sParams.quadSprite.set(TrueSightModelRegistry.getModel(block == SecretBlocks.SECRET_WOODEN_TRAPDOOR ? SecretBlocks.SECRET_WOODEN_TRAPDOOR : SecretBlocks.SECRET_IRON_TRAPDOOR).getParticleTexture());
 					}
 					if(!quad.hasTintIndex() || Minecraft.getMinecraft().player.getItemStackFromSlot(EntityEquipmentSlot.HEAD).getItem() instanceof TrueSightHelmet) {
 						sParams.colorMultiplier.set(-1);
@@ -3,7 +3,8 @@ package com.wynprice.secretroomsmod.integration.malisisdoors.registries.tileenti
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity.TileEntityData;
-import com.wynprice.secretroomsmod.handler.ParticleHandler;
+import com.wynprice.secretroomsmod.handler.MirrorStateCache;
+import com.wynprice.secretroomsmod.handler.SecretTileEntityRegistry;
 
 import net.malisis.core.util.syncer.Syncable;
 import net.malisis.doors.tileentity.DoorTileEntity;
@@ -35,19 +36,31 @@ public class SecretMalisisTileEntityDoor extends DoorTileEntity implements ISecr
 		readFromNBT(compound);
 	}
 	
+	@Override
+	public void onLoad() {
+		super.onLoad();
+		SecretTileEntityRegistry.add(this);
+	}
+	
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		SecretTileEntityRegistry.remove(this);
+	}
+	
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+		SecretTileEntityRegistry.remove(this);
+	}
+	
 	@Override
 	public void readFromNBT(NBTTagCompound compound) {
 		super.readFromNBT(compound);
 		TileEntityData data = ISecretTileEntity.super.readDataFromNBT(compound, getTileData());
 		mirrorState = data.getMirroredState();
 		locked = data.isLocked();
-	}
-	
-	@Override
-	public void update() {
-		super.update();
-		if(mirrorState != null)
-			ParticleHandler.BLOCKBRAKERENDERMAP.put(pos, mirrorState.getBlock().getStateFromMeta(mirrorState.getBlock().getMetaFromState(mirrorState)));
+		MirrorStateCache.update(world, pos, mirrorState);
 	}
 	
 	@Override
@@ -58,10 +71,8 @@ public class SecretMalisisTileEntityDoor extends DoorTileEntity implements ISecr
 	
 	@Override
 	public IBlockState getMirrorState() {
-		if(mirrorState == null && ParticleHandler.BLOCKBRAKERENDERMAP.containsKey(pos))
-			mirrorState = ParticleHandler.BLOCKBRAKERENDERMAP.get(pos);
-		if(mirrorState == null && RENDER_MAP.containsKey(pos))
-			mirrorState = ISecretTileEntity.getMap(world).get(pos);
+		if(mirrorState == null && world != null)
+			mirrorState = MirrorStateCache.get(world, pos);
 		return mirrorState;
 	}
 	
@@ -83,8 +94,8 @@ public class SecretMalisisTileEntityDoor extends DoorTileEntity implements ISecr
 	{
 		if(mirrorState.getBlock() instanceof ISecretBlock)
 			mirrorState = Blocks.STONE.getDefaultState();
-		ISecretTileEntity.getMap(world).put(this.pos, mirrorState);
 		this.mirrorState = mirrorState.getBlock().getStateFromMeta(mirrorState.getBlock().getMetaFromState(mirrorState));
+		MirrorStateCache.update(world, pos, this.mirrorState);
 	}
 	
 	@Override
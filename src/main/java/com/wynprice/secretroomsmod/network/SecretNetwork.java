@@ -10,7 +10,10 @@ import com.wynprice.secretroomsmod.network.packets.MessagePacketUpdateProbe;
 
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.SimpleNetworkWrapper;
@@ -61,6 +64,19 @@ public class SecretNetwork
 			INSTANCE.sendToDimension(message, world.provider.getDimension());
 	}
 	
+	/**
+	 * Sends the message to every player thats watching the chunk. Players that start watching it later wont get the message
+	 */
+	public static void sendToPlayersTrackingChunk(World world, ChunkPos pos, IMessage message)
+	{
+		if(world instanceof WorldServer)
+		{
+			PlayerChunkMapEntry entry = ((WorldServer)world).getPlayerChunkMap().getEntry(pos.x, pos.z);
+			if(entry != null)
+				entry.sendPacket(INSTANCE.getPacketFrom(message));
+		}
+	}
+	
 	public static void sendToAll(IMessage message)
 	{
 		INSTANCE.sendToAll(message);
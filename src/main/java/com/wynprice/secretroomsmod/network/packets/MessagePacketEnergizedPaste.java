@@ -4,7 +4,6 @@ import com.wynprice.secretroomsmod.SecretItems;
 import com.wynprice.secretroomsmod.base.BaseMessagePacket;
 import com.wynprice.secretroomsmod.handler.EnergizedPasteHandler;
 import com.wynprice.secretroomsmod.items.CamouflagePaste;
-import com.wynprice.secretroomsmod.network.SecretNetwork;
 
 import io.netty.buffer.ByteBuf;
 import net.minecraft.block.Block;
@@ -81,7 +80,7 @@ public class MessagePacketEnergizedPaste extends BaseMessagePacket<MessagePacket
 						if(EnergizedPasteHandler.canBlockBeMirrored(block, player.world,  state, message.pos) && EnergizedPasteHandler.canBlockBeReplaced(player.world.getBlockState( message.pos).getBlock(), player.world, player.world.getBlockState(message.pos), message.pos))
 						{
 							EnergizedPasteHandler.putState(player.world, message.pos, state);
-							SecretNetwork.sendToAll(new MessagePacketSyncEnergizedPaste(player.world.provider.getDimension(), message.pos, state, true));
+							EnergizedPasteHandler.syncChange(player.world, message.pos);
 							player.swingArm(hand);
 						}
 					}
@@ -113,8 +112,8 @@ public class MessagePacketEnergizedPaste extends BaseMessagePacket<MessagePacket
                     player.world.spawnEntity(entityitem);
 	            }
 			}
-			EnergizedPasteHandler.removeReplacedState(player.world.provider.getDimension(), message.pos);
-			SecretNetwork.sendToAll(new MessagePacketSyncEnergizedPaste(player.world.provider.getDimension(), message.pos, null, false));
+			EnergizedPasteHandler.removeReplacedState(player.world, message.pos);
+			EnergizedPasteHandler.syncChange(player.world, message.pos);
 		}
 		
 	}
@@ -2,104 +2,175 @@ package com.wynprice.secretroomsmod.network.packets;
 
 import com.wynprice.secretroomsmod.base.BaseMessagePacket;
 import com.wynprice.secretroomsmod.handler.EnergizedPasteHandler;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteSerializer;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteStore;
 
 import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.block.Block;
-import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.Minecraft;
 import net.minecraft.entity.player.EntityPlayer;
-import net.minecraft.init.Blocks;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.PacketBuffer;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
 import net.minecraftforge.fml.common.network.ByteBufUtils;
 
 /**
- * Message packet used to update everything energized paste related. Recieved ClientSide
+ * Message packet used to update everything energized paste related. Recieved ClientSide. The paste is sent per chunk as players start watching them,
+ * with the changes to a chunk batched up each tick and sent to the players watching that chunk
  * @author Wyn Price
  *
  */
 public class MessagePacketSyncEnergizedPaste extends BaseMessagePacket<MessagePacketSyncEnergizedPaste>
 {
-	
+	private static final byte TYPE_DELTA = 0;
+	private static final byte TYPE_ALL = 1;
+	private static final byte TYPE_CHUNK = 2;
+
 	public MessagePacketSyncEnergizedPaste() {
 	}
-	
-	private IBlockState state;
+
+	private byte type;
 	private int dim;
-	private boolean set;
-	private BlockPos pos;
+	private int chunkX;
+	private int chunkZ;
 	private NBTTagCompound nbt;
-	
-	public MessagePacketSyncEnergizedPaste(NBTTagCompound nbt, BlockPos pos) 
+	private int[] palette;
+	private int[] entries;
+
+	/**
+	 * Used to sync all the paste in every dimension
+	 * @param nbt the data, written with {@link EnergizedPasteSerializer#writeStores(it.unimi.dsi.fastutil.ints.Int2ObjectMap)}
+	 */
+	public MessagePacketSyncEnergizedPaste(NBTTagCompound nbt)
 	{
+		this.type = TYPE_ALL;
 		this.nbt = nbt;
-		this.pos = pos == null ? BlockPos.ORIGIN : pos;
 	}
-	
-	public MessagePacketSyncEnergizedPaste(int dim, BlockPos pos, IBlockState state, boolean set) 
+
+	/**
+	 * Used to sync all the paste in one chunk
+	 * @param dim the dimension
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @param nbt the chunk data, written with {@link EnergizedPasteSerializer#writeChunk(com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteStore, int, int, int)}
+	 */
+	public MessagePacketSyncEnergizedPaste(int dim, int chunkX, int chunkZ, NBTTagCompound nbt)
 	{
+		this.type = TYPE_CHUNK;
 		this.dim = dim;
-		this.state = state == null? Blocks.STONE.getDefaultState() : state;
-		this.pos = pos;
-		this.set = set;
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		this.nbt = nbt;
 	}
-	
+
+	/**
+	 * Used to sync the changes to some positions in one chunk
+	 * @param dim the dimension
+	 * @param chunkX the chunk x
+	 * @param chunkZ the chunk z
+	 * @param palette the state ids used in {@code entries}
+	 * @param entries pairs of {@code [local position, palette index + 1]}, where the local position is from {@link EnergizedPasteSerializer#toLocal(BlockPos)}. A palette index of 0 means the paste was removed
+	 */
+	public MessagePacketSyncEnergizedPaste(int dim, int chunkX, int chunkZ, int[] palette, int[] entries)
+	{
+		this.type = TYPE_DELTA;
+		this.dim = dim;
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		this.palette = palette;
+		this.entries = entries;
+	}
+
 	@Override
-	public void fromBytes(ByteBuf buf) 
+	public void fromBytes(ByteBuf buf)
 	{
-		int type = buf.readInt();
-		pos = new BlockPos(buf.readInt(), buf.readInt(), buf.readInt());
-		if(type == 0)
+		PacketBuffer buffer = new PacketBuffer(buf);
+		type = buffer.readByte();
+		if(type == TYPE_ALL)
 		{
-			dim = buf.readInt();
-			state = Block.getStateById(buf.readInt());
-			set = buf.readBoolean();
+			nbt = ByteBufUtils.readTag(buf);
+			return;
 		}
-		else
+		dim = buffer.readVarInt();
+		chunkX = buffer.readInt();
+		chunkZ = buffer.readInt();
+		if(type == TYPE_CHUNK)
 			nbt = ByteBufUtils.readTag(buf);
+		else
+		{
+			palette = buffer.readVarIntArray();
+			entries = buffer.readVarIntArray();
+		}
 	}
-	
+
 	@Override
-	public void toBytes(ByteBuf buf) 
+	public void toBytes(ByteBuf buf)
 	{
-		buf.writeInt(nbt == null ? 0 : 1);
-		buf.writeInt(pos.getX());
-		buf.writeInt(pos.getY());
-		buf.writeInt(pos.getZ());
-		if(nbt == null)
+		PacketBuffer buffer = new PacketBuffer(buf);
+		buffer.writeByte(type);
+		if(type == TYPE_ALL)
 		{
-			buf.writeInt(dim);
-			buf.writeInt(Block.getStateId(state));
-			buf.writeBoolean(set);
+			ByteBufUtils.writeTag(buf, nbt);
+			return;
 		}
-		else
+		buffer.writeVarInt(dim);
+		buffer.writeInt(chunkX);
+		buffer.writeInt(chunkZ);
+		if(type == TYPE_CHUNK)
 			ByteBufUtils.writeTag(buf, nbt);
+		else
+		{
+			buffer.writeVarIntArray(palette);
+			buffer.writeVarIntArray(entries);
+		}
 	}
 
 	@Override
-	public void onReceived(MessagePacketSyncEnergizedPaste message, EntityPlayer player) 
+	public void onReceived(MessagePacketSyncEnergizedPaste message, EntityPlayer player)
 	{
-		
-		if(message.nbt != null)
-			EnergizedPasteHandler.readFromNBT(message.nbt);
-		else
-		{
-			if(!message.pos.equals(BlockPos.ORIGIN))
-				if(message.set)
-					EnergizedPasteHandler.putState(message.dim, message.pos, message.state, player.world.getBlockState(message.pos));
+		//Run on the main thread, so the paste is in the same order as the vanilla chunk packets
+		Minecraft.getMinecraft().addScheduledTask(() -> {
+			World world = Minecraft.getMinecraft().world;
+			if(world == null)
+				return;
+			if(message.type == TYPE_ALL)
+			{
+				EnergizedPasteHandler.readFromNBT(message.nbt, world);
+				return;
+			}
+			if(message.dim != world.provider.getDimension())
+				return;
+			LongOpenHashSet sections = new LongOpenHashSet();
+			if(message.type == TYPE_CHUNK)
+			{
+				//Only the sections with paste before or after the change are re-rendered
+				EnergizedPasteStore.PasteConsumer addSections = (pos, stateId, replacedStateId) -> EnergizedPasteHandler.addSectionsAround(sections, BlockPos.fromLong(pos));
+				EnergizedPasteStore.Builder builder = new EnergizedPasteStore.Builder();
+				EnergizedPasteSerializer.readChunk(message.nbt, message.chunkX, message.chunkZ, builder);
+				EnergizedPasteStore store = EnergizedPasteHandler.getStore(world);
+				if(store != null)
+					store.forEachInChunk(message.chunkX, message.chunkZ, addSections);
+				EnergizedPasteHandler.replaceChunk(world, message.chunkX, message.chunkZ, builder);
+				store = EnergizedPasteHandler.getStore(world);
+				if(store != null)
+					store.forEachInChunk(message.chunkX, message.chunkZ, addSections);
+				EnergizedPasteHandler.markSectionsForRenderUpdate(world, sections);
+				return;
+			}
+			for(int i = 0; i + 1 < message.entries.length; i += 2)
+			{
+				BlockPos pos = EnergizedPasteSerializer.fromLocal(message.chunkX, message.chunkZ, message.entries[i]);
+				int index = message.entries[i + 1];
+				if(index == 0)
+					EnergizedPasteHandler.removeReplacedState(world, pos);
 				else
-					EnergizedPasteHandler.removeReplacedState(message.dim, message.pos);
-		}
-		if(!message.pos.equals(BlockPos.ORIGIN))
-			player.world.markBlockRangeForRenderUpdate(message.pos.add(-1, -1, -1), message.pos.add(1, 1, 1));
-		else
-			Minecraft.getMinecraft().addScheduledTask(new Runnable() {
-				
-				@Override
-				public void run() {
-					Minecraft.getMinecraft().renderGlobal.loadRenderers();
-				}
-			});
+					EnergizedPasteHandler.putState(world, pos, Block.getStateById(message.palette[index - 1]), world.getBlockState(pos));
+				EnergizedPasteHandler.addSectionsAround(sections, pos);
+			}
+			EnergizedPasteHandler.markSectionsForRenderUpdate(world, sections);
+		});
 	}
 
 }
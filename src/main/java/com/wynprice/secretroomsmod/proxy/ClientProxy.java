@@ -1,7 +1,6 @@
 package com.wynprice.secretroomsmod.proxy;
 
 import java.awt.Color;
-import java.lang.reflect.Field;
 
 import com.wynprice.secretroomsmod.SecretItems;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
@@ -11,14 +10,11 @@ import com.wynprice.secretroomsmod.handler.HandlerUpdateChecker;
 import com.wynprice.secretroomsmod.handler.ProbeSwitchRenderHander;
 import com.wynprice.secretroomsmod.handler.ReloadTrueSightModelsHandler;
 import com.wynprice.secretroomsmod.handler.SecretKeyBindings;
-import com.wynprice.secretroomsmod.render.FakeChunkRenderFactory;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiScreen;
-import net.minecraft.client.renderer.RenderGlobal;
-import net.minecraft.client.renderer.chunk.IRenderChunkFactory;
 import net.minecraft.client.renderer.color.BlockColors;
 import net.minecraft.client.renderer.color.IBlockColor;
 import net.minecraft.client.renderer.color.IItemColor;
@@ -57,21 +53,8 @@ public class ClientProxy extends CommonProxy
 	@Override
 	public void init(FMLInitializationEvent event) {
 		super.init(event);
+		HandlerUpdateChecker.start();
 
-		try
-		{
-			for(Field field : RenderGlobal.class.getDeclaredFields())
-				if(field.getType() == IRenderChunkFactory.class)
-				{
-					field.setAccessible(true);
-					field.set(Minecraft.getMinecraft().renderGlobal, new FakeChunkRenderFactory((IRenderChunkFactory) field.get(Minecraft.getMinecraft().renderGlobal)));
-					field.setAccessible(false);
-				}
-		}
-		catch (Throwable e) {
-			e.printStackTrace();
-		}
-		    	
     	ItemColors itemColors = Minecraft.getMinecraft().getItemColors();
     	BlockColors blockColors = Minecraft.getMinecraft().getBlockColors();
     	
@@ -5,6 +5,7 @@ import com.wynprice.secretroomsmod.SecretRooms5;
 import com.wynprice.secretroomsmod.handler.EnergizedPasteHandler;
 import com.wynprice.secretroomsmod.handler.GuiHandler;
 import com.wynprice.secretroomsmod.handler.RecipeHelperHandler;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteEligibility;
 import com.wynprice.secretroomsmod.integration.malisisdoors.SecretCompactMalisisDoors;
 import com.wynprice.secretroomsmod.network.SecretNetwork;
 import com.wynprice.secretroomsmod.tileentity.TileEntityInfomationHolder;
@@ -68,7 +69,7 @@ public class CommonProxy
 	
 	public void postInit(FMLPostInitializationEvent event) 
     {
-		
+		EnergizedPasteEligibility.postInit();
     }
 	
 	//used for clients to get an instance of the player that wont crash the game
@@ -22,11 +22,21 @@ import net.minecraft.world.biome.Biome;
 public class FakeBlockAccess implements IBlockAccess
 {
 	
-	private final IBlockAccess base;
+	private IBlockAccess base;
 	
 	public FakeBlockAccess(IBlockAccess base) {
 		this.base = base;
 	}
+	
+	/**
+	 * Used to reuse this access for a different world
+	 * @param base the new base access
+	 * @return this instance
+	 */
+	public FakeBlockAccess setBase(IBlockAccess base) {
+		this.base = base;
+		return this;
+	}
 
 	@Override
 	public TileEntity getTileEntity(BlockPos pos) {
@@ -44,8 +54,8 @@ public class FakeBlockAccess implements IBlockAccess
 	@Override
 	public IBlockState getBlockState(BlockPos pos) 
 	{
-		return base.getTileEntity(pos) instanceof ISecretTileEntity && ((ISecretTileEntity)base.getTileEntity(pos)).getMirrorStateSafely() != null
-				? ((ISecretTileEntity)base.getTileEntity(pos)).getMirrorStateSafely() : base.getBlockState(pos);
+		TileEntity tileEntity = base.getTileEntity(pos);
+		return tileEntity instanceof ISecretTileEntity ? ((ISecretTileEntity)tileEntity).getMirrorStateSafely() : base.getBlockState(pos);
 	}
 
 	@Override
@@ -2,15 +2,23 @@ package com.wynprice.secretroomsmod.render;
 
 import java.util.ArrayList;
 
+import javax.annotation.Nullable;
+
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
 import com.wynprice.secretroomsmod.handler.EnergizedPasteHandler;
+import com.wynprice.secretroomsmod.handler.SecretTileEntityRegistry;
+import com.wynprice.secretroomsmod.handler.energizedpaste.EnergizedPasteStore;
 import com.wynprice.secretroomsmod.items.TrueSightHelmet;
 import com.wynprice.secretroomsmod.network.SecretNetwork;
 import com.wynprice.secretroomsmod.network.packets.MessagePacketEnergizedPaste;
 
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.Minecraft;
+import net.minecraft.init.Blocks;
 import net.minecraft.inventory.EntityEquipmentSlot;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
@@ -34,17 +42,81 @@ public class FakeChunkCache extends ChunkCache
 	
 	private final ChunkCache oldCache;
 	
-	private final BlockPos fromPos;
-	private final BlockPos toPos;
-	private final int sub;
+	/**
+	 * If any chunk section in the region has a secret tile entity in it. Worked out once when the cache is made, so the render hooks can skip regions without any
+	 */
+	private final boolean hasSecretBlocks;
+	
+	/**
+	 * If any chunk section in the region has Energized Paste in it
+	 */
+	private final boolean hasPaste;
+	
+	/**
+	 * The positions, as {@link BlockPos#toLong()}, of the secret blocks in the region that can be seen through. Used for face culling
+	 */
+	private final LongOpenHashSet renderTransparentSecretBlocks;
 	
-	public FakeChunkCache(World world, BlockPos from, BlockPos to, int sub, ChunkCache oldCache)
+	/**
+	 * Wraps the {@code oldCache}. Everything is read from the {@code oldCache}, so the super ChunkCache is only made over the one chunk at {@code from}, rather than loading the whole region twice
+	 * @param world the world
+	 * @param from the position the region starts at
+	 * @param to the position the region ends at
+	 * @param oldCache the cache to wrap
+	 */
+	public FakeChunkCache(World world, BlockPos from, BlockPos to, ChunkCache oldCache)
 	{
-		super(world, from, to, sub);
+		super(world, from, from, 0);
 		this.oldCache = oldCache;
-		this.fromPos = from;
-		this.toPos = to;
-		this.sub = sub;
+		boolean secretBlocks = false;
+		boolean paste = false;
+		for(int x = from.getX() >> 4; x <= to.getX() >> 4; x++)
+			for(int y = from.getY() >> 4; y <= to.getY() >> 4; y++)
+				for(int z = from.getZ() >> 4; z <= to.getZ() >> 4; z++)
+				{
+					secretBlocks |= SecretTileEntityRegistry.hasTileEntityInSection(world, x, y, z);
+					paste |= EnergizedPasteHandler.hasPasteInSection(world, x, y, z);
+				}
+		this.hasSecretBlocks = secretBlocks;
+		this.hasPaste = paste;
+		Long2BooleanOpenHashMap secretBlockMap = new Long2BooleanOpenHashMap();
+		if(secretBlocks)
+			SecretTileEntityRegistry.forEachInRegion(world, from.getX() >> 4, from.getZ() >> 4, to.getX() >> 4, to.getZ() >> 4,
+					tileEntity -> secretBlockMap.put(tileEntity.getPos().toLong(), isRenderTransparentSecretBlock(tileEntity, tileEntity.getPos())));
+		this.renderTransparentSecretBlocks = SecretBlockCulling.getRenderTransparentPositions(from, to, secretBlockMap);
+	}
+	
+	/**
+	 * @param vanillaResult if the face would be rendered normally
+	 * @param pos the position of the block being rendered, inside the region
+	 * @param face the face being rendered
+	 * @return see {@link SecretBlockCulling#shouldSideBeRendered(boolean, BlockPos, EnumFacing, it.unimi.dsi.fastutil.longs.LongSet)}
+	 */
+	public boolean shouldSideBeRendered(boolean vanillaResult, BlockPos pos, EnumFacing face)
+	{
+		return SecretBlockCulling.shouldSideBeRendered(vanillaResult, pos, face, renderTransparentSecretBlocks);
+	}
+	
+	/**
+	 * A secret tile entity whose block isnt an {@link ISecretBlock} (like when the block has been changed, but the tile entity is still there) counts as not see-through
+	 * @param tileEntity the tile entity at the position
+	 * @param pos the position
+	 * @return true if the tile entity is an {@link ISecretTileEntity}, and the block in its world is a secret block that can be seen through
+	 */
+	public static boolean isRenderTransparentSecretBlock(@Nullable TileEntity tileEntity, BlockPos pos)
+	{
+		if(!(tileEntity instanceof ISecretTileEntity))
+			return false;
+		Block block = tileEntity.getWorld().getBlockState(pos).getBlock();
+		return block instanceof ISecretBlock && ((ISecretBlock)block).isRenderTransparent();
+	}
+	
+	/**
+	 * @return false if there are no secret blocks in the region, meaning the render hooks can use the vanilla logic
+	 */
+	public boolean hasSecretBlocks() 
+	{
+		return hasSecretBlocks;
 	}
 	
 	@Override
@@ -58,27 +130,35 @@ public class FakeChunkCache extends ChunkCache
 	{
 		return oldCache.getBiome(pos);
 	}
-			
-	public int prevInt = -1;
 	
 	@Override
 	public IBlockState getBlockState(BlockPos pos) 
 	{
-		if(!(super.getBlockState(pos).getBlock() instanceof ISecretBlock) && EnergizedPasteHandler.hasReplacedState(world, pos) && !(Minecraft.getMinecraft().player.getItemStackFromSlot(EntityEquipmentSlot.HEAD).getItem() instanceof TrueSightHelmet))
+		IBlockState state = oldCache.getBlockState(pos);
+		Block block = state.getBlock();
+		if(block instanceof ISecretBlock)
+		{
+			TileEntity tileEntity = oldCache.getTileEntity(pos);
+			return tileEntity instanceof ISecretTileEntity ? ((ISecretTileEntity)tileEntity).getMirrorStateSafely() : state;
+		}
+		if(!hasPaste)
+			return state;
+		EnergizedPasteStore store = EnergizedPasteHandler.getStore(world);
+		IBlockState setState = store == null ? null : store.getReplacedState(pos);
+		if(setState != null && !(Minecraft.getMinecraft().player.getItemStackFromSlot(EntityEquipmentSlot.HEAD).getItem() instanceof TrueSightHelmet) && EnergizedPasteHandler.canBlockBeMirrored(block, world, state, pos))
 		{
-			if(EnergizedPasteHandler.getSetBlockState(world, pos).getBlock() != super.getBlockState(pos).getBlock()
-					|| EnergizedPasteHandler.getSetBlockState(world, pos).getBlock().getMetaFromState(EnergizedPasteHandler.getSetBlockState(world, pos)) != super.getBlockState(pos).getBlock().getMetaFromState(super.getBlockState(pos)))
+			if(setState.getBlock() != block || setState.getBlock().getMetaFromState(setState) != block.getMetaFromState(state))
 			{
 				//EnergizedPasteHandler.removeReplacedState(world.provider.getDimension(), pos);
 				SecretNetwork.sendToServer(new MessagePacketEnergizedPaste(pos, false));
 			}
 			else
-				return EnergizedPasteHandler.getReplacedState(world, pos);
-		}
-		if(oldCache.getTileEntity(pos) instanceof ISecretTileEntity) {
-			return ((ISecretTileEntity)oldCache.getTileEntity(pos)).getMirrorStateSafely();
+			{
+				IBlockState pasteState = store.getState(pos);
+				return pasteState == null ? Blocks.AIR.getDefaultState() : pasteState; //Can be null if removed on another thread
+			}
 		}
-		return oldCache.getBlockState(pos);
+		return state;
 	}	
 	
 	@Override
@@ -104,7 +184,7 @@ public class FakeChunkCache extends ChunkCache
         }
         else if (pos.getY() >= 0 && pos.getY() < 256)
         {
-            if (this.getBlockState(pos).useNeighborBrightness() || EnergizedPasteHandler.hasReplacedState(world, pos))
+            if (this.getBlockState(pos).useNeighborBrightness() || (hasPaste && EnergizedPasteHandler.hasReplacedState(world, pos)))
             {
                 int l = 0;
 
@@ -127,9 +207,7 @@ public class FakeChunkCache extends ChunkCache
             }
             else
             {
-                int i = (pos.getX() >> 4) - this.chunkX;
-                int j = (pos.getZ() >> 4) - this.chunkZ;
-                return i >= 0 && i < chunkArray.length && j >= 0 && j < chunkArray[i].length && chunkArray[i][j] != null ? this.chunkArray[i][j].getLightFor(type, pos) : type.defaultLightValue;
+                return oldCache.getLightFor(type, pos);
             }
         }
         else
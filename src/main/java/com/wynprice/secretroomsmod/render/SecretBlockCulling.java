@@ -0,0 +1,49 @@
+package com.wynprice.secretroomsmod.render;
+
+import it.unimi.dsi.fastutil.longs.Long2BooleanMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * The face culling logic for secret blocks, used by the {@link FakeChunkCache} and the render hooks. Dosnt touch the world, so it can be tested without one
+ * @author Wyn Price
+ *
+ */
+public class SecretBlockCulling
+{
+	/**
+	 * Works out the see-through secret blocks in a render region
+	 * @param from the position the region starts at
+	 * @param to the position the region ends at, inclusive
+	 * @param secretBlocks the secret blocks near the region, as {@link BlockPos#toLong()} to if they can be seen through. Ones outside the region are ignored
+	 * @return the positions, as {@link BlockPos#toLong()}, of the see-through secret blocks inside the region
+	 */
+	public static LongOpenHashSet getRenderTransparentPositions(BlockPos from, BlockPos to, Long2BooleanMap secretBlocks)
+	{
+		LongOpenHashSet positions = new LongOpenHashSet();
+		for(Long2BooleanMap.Entry entry : secretBlocks.long2BooleanEntrySet())
+		{
+			if(!entry.getBooleanValue())
+				continue;
+			BlockPos pos = BlockPos.fromLong(entry.getLongKey());
+			if(pos.getX() >= from.getX() && pos.getX() <= to.getX() && pos.getY() >= from.getY() && pos.getY() <= to.getY() && pos.getZ() >= from.getZ() && pos.getZ() <= to.getZ())
+				positions.add(entry.getLongKey());
+		}
+		return positions;
+	}
+
+	/**
+	 * The decision made by {@link com.wynprice.secretroomsmod.core.SecretRoomsHooksClient#shouldSideBeRendered} when rendering a chunk
+	 * @param vanillaResult if the face would be rendered normally
+	 * @param pos the position of the block being rendered
+	 * @param face the face being rendered
+	 * @param renderTransparentSecretBlocks the see-through secret blocks in the region, from {@link #getRenderTransparentPositions(BlockPos, BlockPos, Long2BooleanMap)}
+	 * @return true if the face would be rendered normally, or the neighbour on that face is a secret block that can be seen through
+	 */
+	public static boolean shouldSideBeRendered(boolean vanillaResult, BlockPos pos, EnumFacing face, LongSet renderTransparentSecretBlocks)
+	{
+		return vanillaResult || (!renderTransparentSecretBlocks.isEmpty() && renderTransparentSecretBlocks.contains(pos.offset(face).toLong()));
+	}
+}
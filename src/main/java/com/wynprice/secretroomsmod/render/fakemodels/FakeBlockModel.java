@@ -103,7 +103,7 @@ public class FakeBlockModel implements IBakedModel
 	}
 		
 	/**
-	 * Gets the model from the {@link ResourceLocation}
+	 * Gets the model from the {@link ResourceLocation}. This bakes the model every time, so should only be used when the models are baked, see {@link TrueSightModelRegistry}
 	 * @param resourceLocation the location of the model
 	 * @return the model, at the {@link ResourceLocation}
 	 * @throws RuntimeException if the model can't be loaded
@@ -1,8 +1,13 @@
 package com.wynprice.secretroomsmod.render.fakemodels;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.google.common.collect.Lists;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.wynprice.secretroomsmod.SecretBlocks;
 import com.wynprice.secretroomsmod.SecretCompatibility;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
@@ -12,6 +17,7 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.renderer.block.model.BakedQuad;
 import net.minecraft.client.renderer.block.model.IBakedModel;
 import net.minecraft.util.EnumFacing;
+import net.minecraftforge.client.event.ModelBakeEvent;
 import net.minecraftforge.common.property.IExtendedBlockState;
 
 /**
@@ -35,6 +41,22 @@ public class SecretBlockModel extends FakeBlockModel
 	public final ThreadLocal<IBlockState> SRMBLOCK = ThreadLocal.withInitial(() -> null);
 	
 	
+	/**
+	 * The most quad lists held in the cache
+	 */
+	public static final int MAX_CACHED_QUADS = 8192;
+	
+	/**
+	 * Caches the quads for each secret block state, mirrored state, side, mirrored models quads and if True Sight is on. 
+	 * A new instance is made on every {@link ModelBakeEvent}, so this and {@link #aoCache} are thrown away whenever the resources are reloaded
+	 */
+	private final Cache<QuadCacheKey, List<BakedQuad>> quadCache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_QUADS).build();
+	
+	/**
+	 * Caches if the model for each mirrored state uses ambient occlusion
+	 */
+	private final Map<IBlockState, Boolean> aoCache = new ConcurrentHashMap<>();
+	
 	public SecretBlockModel(IBakedModel stone) {
 		super(stone);
 		instance = this;
@@ -47,26 +69,55 @@ public class SecretBlockModel extends FakeBlockModel
 		if(SRMBLOCK.get() != null) {
 			IBlockState secretBlockState = SRMBLOCK.get();
 			if(SecretCompatibility.MALISISDOORS && (secretBlockState.getBlock() == SecretBlocks.SECRET_WOODEN_DOOR || secretBlockState.getBlock() == SecretBlocks.SECRET_IRON_DOOR)) {
-				return Lists.newArrayList(); //If malisisdoors is enabled, dont render anything
+				return Collections.emptyList(); //If malisisdoors is enabled, dont render anything
 			}
 			IBlockState renderActualState = ((IExtendedBlockState)secretBlockState).getValue(ISecretBlock.RENDER_PROPERTY);
 			if(renderActualState != null)
 			{
-				FakeBlockModel renderModel = ((ISecretBlock)secretBlockState.getBlock()).phaseModel(new FakeBlockModel(renderActualState));
-				if(TrueSightHelmet.isHelmet()) {
-        			renderModel = ((ISecretBlock)secretBlockState.getBlock()).phaseTrueModel(new TrueSightModel(new FakeBlockModel(renderActualState)));
-        		}
-				return renderModel.setCurrentRender(secretBlockState).setCurrentActualState(renderActualState).getQuads(state, side, rand);
+				boolean trueSight = TrueSightHelmet.isHelmet();
+				if(renderActualState instanceof IExtendedBlockState) { //Extended states can hold anything, so they cant be cached
+					return createQuads(secretBlockState, renderActualState, trueSight, state, side, rand);
+				}
+				//The mirrored models quads are used in the key instead of rand. Weighted models (even nested ones, like multipart) pick one of their variants with rand,
+				//and each variant always gives back the same list, so this only changes when the quads would
+				List<BakedQuad> baseQuads = getModel(renderActualState).getQuads(renderActualState, side, rand);
+				QuadCacheKey key = new QuadCacheKey(((IExtendedBlockState)secretBlockState).getClean(), renderActualState, side, trueSight, baseQuads);
+				List<BakedQuad> quads = quadCache.getIfPresent(key);
+				if(quads == null) {
+					quadCache.put(key, quads = ImmutableList.copyOf(createQuads(secretBlockState, renderActualState, trueSight, state, side, rand)));
+				}
+				return quads;
 			}
 		}
 		return this.model.getQuads(state, side, rand);
 	}
+	
+	private List<BakedQuad> createQuads(IBlockState secretBlockState, IBlockState renderActualState, boolean trueSight, IBlockState state, EnumFacing side, long rand)
+	{
+		FakeBlockModel renderModel = ((ISecretBlock)secretBlockState.getBlock()).phaseModel(new FakeBlockModel(renderActualState));
+		if(trueSight) {
+			renderModel = ((ISecretBlock)secretBlockState.getBlock()).phaseTrueModel(new TrueSightModel(new FakeBlockModel(renderActualState)));
+		}
+		return renderModel.setCurrentRender(secretBlockState).setCurrentActualState(renderActualState).getQuads(state, side, rand);
+	}
 
 	@Override
 	public boolean isAmbientOcclusion() {
 		return AO.get();
 	}
 	
+	/**
+	 * @param renderState the mirrored state
+	 * @return true if the model for the mirrored state uses ambient occlusion
+	 */
+	public boolean isAmbientOcclusion(IBlockState renderState) {
+		Boolean ao = aoCache.get(renderState);
+		if(ao == null) {
+			aoCache.put(renderState, ao = getModel(renderState).isAmbientOcclusion());
+		}
+		return ao;
+	}
+	
 	public static SecretBlockModel instance() {
 		return instance;
 	}
@@ -75,4 +126,46 @@ public class SecretBlockModel extends FakeBlockModel
 		instance = new SecretBlockModel(stoneModel);
 		return instance;
 	}
+	
+	/**
+	 * The key for the quad cache. Block states are singletons, and the mirrored models quads are the lists held by the baked model, so they are all compared by identity
+	 * @author Wyn Price
+	 *
+	 */
+	private static class QuadCacheKey
+	{
+		private final IBlockState secretBlockState;
+		private final IBlockState renderActualState;
+		private final EnumFacing side;
+		private final boolean trueSight;
+		private final List<BakedQuad> baseQuads;
+		
+		public QuadCacheKey(IBlockState secretBlockState, IBlockState renderActualState, EnumFacing side, boolean trueSight, List<BakedQuad> baseQuads) 
+		{
+			this.secretBlockState = secretBlockState;
+			this.renderActualState = renderActualState;
+			this.side = side;
+			this.trueSight = trueSight;
+			this.baseQuads = baseQuads;
+		}
+		
+		@Override
+		public boolean equals(Object obj) 
+		{
+			if(!(obj instanceof QuadCacheKey))
+				return false;
+			QuadCacheKey other = (QuadCacheKey) obj;
+			return secretBlockState == other.secretBlockState && renderActualState == other.renderActualState && side == other.side && trueSight == other.trueSight && baseQuads == other.baseQuads;
+		}
+		
+		@Override
+		public int hashCode() 
+		{
+			int hash = System.identityHashCode(secretBlockState);
+			hash = 31 * hash + System.identityHashCode(renderActualState);
+			hash = 31 * hash + (side == null ? 6 : side.ordinal());
+			hash = 31 * hash + (trueSight ? 1 : 0);
+			return 31 * hash + System.identityHashCode(baseQuads);
+		}
+	}
 }
@@ -0,0 +1,81 @@
+package com.wynprice.secretroomsmod.render.fakemodels;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.wynprice.secretroomsmod.SecretBlocks;
+import com.wynprice.secretroomsmod.SecretRooms5;
+
+import net.minecraft.block.Block;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.block.model.IBakedModel;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.client.event.ModelBakeEvent;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Holds the True Sight models for each SRM block, baked once on {@link ModelBakeEvent}. The model for a block is at {@code secretroomsmod:block/<block name>}
+ * @author Wyn Price
+ *
+ */
+@SideOnly(Side.CLIENT)
+public class TrueSightModelRegistry
+{
+	private static volatile Map<Block, IBakedModel> models = Collections.emptyMap();
+
+	/**
+	 * The blocks that have already been logged as missing a model, so they are only logged once
+	 */
+	private static final Set<Block> LOGGED_MISSING = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+	/**
+	 * Bakes the True Sight model for every SRM block. Called from {@link ModelBakeEvent}, as the textures are stitched by then
+	 */
+	public static void bakeModels()
+	{
+		Map<Block, IBakedModel> baked = new IdentityHashMap<>();
+		for(Block block : Block.REGISTRY)
+		{
+			if(!block.getRegistryName().getResourceDomain().equals(SecretRooms5.MODID))
+				continue;
+			try
+			{
+				baked.put(block, FakeBlockModel.getModel(new ResourceLocation(SecretRooms5.MODID, "block/" + block.getRegistryName().getResourcePath())));
+			}
+			catch (RuntimeException e)
+			{
+				; //Not every block has a model. Its logged if its ever used
+			}
+		}
+		models = baked;
+		LOGGED_MISSING.clear();
+	}
+
+	/**
+	 * Gets the baked True Sight model for the block
+	 * @param block the block
+	 * @return the baked model, or the missing model if there is none
+	 */
+	public static IBakedModel getModel(Block block)
+	{
+		IBakedModel model = models.get(block);
+		if(model == null)
+		{
+			if(LOGGED_MISSING.add(block))
+				SecretRooms5.LOGGER.error("Unable to find the True Sight model for {}, using the missing model", block.getRegistryName());
+			return Minecraft.getMinecraft().getBlockRendererDispatcher().getBlockModelShapes().getModelManager().getMissingModel();
+		}
+		return model;
+	}
+
+	/**
+	 * @return the baked ghost block model, used by blocks that show a different model on some faces with True Sight
+	 */
+	public static IBakedModel getGhostModel()
+	{
+		return getModel(SecretBlocks.GHOST_BLOCK);
+	}
+}
@@ -10,7 +10,8 @@ import com.wynprice.secretroomsmod.SecretRooms5;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity.TileEntityData;
-import com.wynprice.secretroomsmod.handler.ParticleHandler;
+import com.wynprice.secretroomsmod.handler.MirrorStateCache;
+import com.wynprice.secretroomsmod.handler.SecretTileEntityRegistry;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
@@ -19,7 +20,6 @@ import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.play.server.SPacketUpdateTileEntity;
 import net.minecraft.tileentity.TileEntity;
-import net.minecraft.util.ITickable;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
@@ -29,7 +29,7 @@ import net.minecraft.util.math.BlockPos;
  * @author Wyn Price
  *
  */
-public class TileEntityInfomationHolder extends TileEntity implements ITickable, ISecretTileEntity
+public class TileEntityInfomationHolder extends TileEntity implements ISecretTileEntity
 {
 	/**
 	 * The mirrored state
@@ -47,18 +47,31 @@ public class TileEntityInfomationHolder extends TileEntity implements ITickable,
 		readFromNBT(compound);
 	}
 	
+	@Override
+	public void onLoad() {
+		super.onLoad();
+		SecretTileEntityRegistry.add(this);
+	}
+	
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		SecretTileEntityRegistry.remove(this);
+	}
+	
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+		SecretTileEntityRegistry.remove(this);
+	}
+	
 	@Override
 	public void readFromNBT(NBTTagCompound compound) {
 		super.readFromNBT(compound);
 		TileEntityData data = ISecretTileEntity.super.readDataFromNBT(compound, getTileData());
 		mirrorState = data.getMirroredState();
-		locked = data.isLocked();	
-	}
-	
-	@Override
-	public void update() {
-		if(mirrorState != null)
-			ParticleHandler.BLOCKBRAKERENDERMAP.put(pos, mirrorState.getBlock().getStateFromMeta(mirrorState.getBlock().getMetaFromState(mirrorState)));
+		locked = data.isLocked();
+		MirrorStateCache.update(world, pos, mirrorState);
 	}
 	
 	@Override
@@ -74,10 +87,8 @@ public class TileEntityInfomationHolder extends TileEntity implements ITickable,
 	
 	@Override
 	public IBlockState getMirrorState() {
-		if(mirrorState == null && ParticleHandler.BLOCKBRAKERENDERMAP.containsKey(pos))
-			mirrorState = ParticleHandler.BLOCKBRAKERENDERMAP.get(pos);
-		if(mirrorState == null && RENDER_MAP.containsKey(pos))
-			mirrorState = ISecretTileEntity.getMap(world).get(pos);
+		if(mirrorState == null && world != null)
+			mirrorState = MirrorStateCache.get(world, pos);
 		return mirrorState;
 	}
 	
@@ -108,33 +119,32 @@ public class TileEntityInfomationHolder extends TileEntity implements ITickable,
 		if(mirrorState.getBlock() instanceof ISecretBlock) {
 			mirrorState = Blocks.STONE.getDefaultState();
 		}
-		ISecretTileEntity.getMap(world).put(this.pos, mirrorState);
 		this.mirrorState = mirrorState.getBlock().getStateFromMeta(mirrorState.getBlock().getMetaFromState(mirrorState));
+		MirrorStateCache.update(world, pos, this.mirrorState);
 	}
 	
 	@Override
 	public SPacketUpdateTileEntity getUpdatePacket() {
-		NBTTagCompound nbt = new NBTTagCompound();
-		this.writeToNBT(nbt);
 		int metadata = getBlockMetadata();
-		return new SPacketUpdateTileEntity(this.pos, metadata, nbt);
+		return new SPacketUpdateTileEntity(this.pos, metadata, getUpdateTag());
 	}
 
 	@Override
 	public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt) {
-		this.readFromNBT(pkt.getNbtCompound());
+		this.handleUpdateTag(pkt.getNbtCompound());
 	}
 
 	@Override
 	public NBTTagCompound getUpdateTag() {
-		NBTTagCompound nbt = new NBTTagCompound();
-		this.writeToNBT(nbt);
-		return nbt;
+		return ISecretTileEntity.super.writeSyncTag(new TileEntityData().setMirroredState(getMirrorStateSafely()).setLocked(locked));
 	}
 
 	@Override
 	public void handleUpdateTag(NBTTagCompound tag) {
-		this.readFromNBT(tag);
+		TileEntityData data = ISecretTileEntity.super.readSyncTag(tag);
+		mirrorState = data.getMirroredState();
+		locked = data.isLocked();
+		MirrorStateCache.update(world, pos, mirrorState);
 	}
 	
 }
@@ -1,17 +1,18 @@
 package com.wynprice.secretroomsmod.tileentity;
 
 import net.minecraft.block.BlockDaylightDetector;
+import net.minecraft.util.ITickable;
 
 /**
- * The TileEntity for Secret daylight sensors
+ * The TileEntity for Secret daylight sensors. One of the only secret tile entities that ticks, as it needs to update its power
  * @author Wyn Price
  *
  */
-public class TileEntitySecretDaylightSensor extends TileEntityInfomationHolder
+public class TileEntitySecretDaylightSensor extends TileEntityInfomationHolder implements ITickable
 {
+	@Override
 	public void update()
     {
-		super.update();
         if (this.world != null && !this.world.isRemote && this.world.getTotalWorldTime() % 20L == 0L)
         {
             this.blockType = this.getBlockType();
@@ -8,7 +8,8 @@ import javax.annotation.Nullable;
 
 import com.wynprice.secretroomsmod.base.interfaces.ISecretBlock;
 import com.wynprice.secretroomsmod.base.interfaces.ISecretTileEntity;
-import com.wynprice.secretroomsmod.handler.ParticleHandler;
+import com.wynprice.secretroomsmod.handler.MirrorStateCache;
+import com.wynprice.secretroomsmod.handler.SecretTileEntityRegistry;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
@@ -38,12 +39,31 @@ public class TileEntitySecretDispenser extends TileEntityDispenser implements IS
 		readFromNBT(compound);
 	}
 	
+	@Override
+	public void onLoad() {
+		super.onLoad();
+		SecretTileEntityRegistry.add(this);
+	}
+	
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		SecretTileEntityRegistry.remove(this);
+	}
+	
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+		SecretTileEntityRegistry.remove(this);
+	}
+	
 	@Override
 	public void readFromNBT(NBTTagCompound compound) {
 		super.readFromNBT(compound);
 		TileEntityData data = ISecretTileEntity.super.readDataFromNBT(compound, getTileData());
 		mirrorState = data.getMirroredState();
 		locked = data.isLocked();
+		MirrorStateCache.update(world, pos, mirrorState);
 	}
 	
 	@Override
@@ -52,12 +72,6 @@ public class TileEntitySecretDispenser extends TileEntityDispenser implements IS
 		return Double.MAX_VALUE;
 	}
 	
-	@Override
-	public void update() {
-		if(mirrorState != null)
-			ParticleHandler.BLOCKBRAKERENDERMAP.put(pos, mirrorState.getBlock().getStateFromMeta(mirrorState.getBlock().getMetaFromState(mirrorState)));
-	}
-	
 	@Override
 	public NBTTagCompound writeToNBT(NBTTagCompound compound) {
 		ISecretTileEntity.super.writeDataToNBT(compound, new TileEntityData().setMirroredState(getMirrorStateSafely()).setLocked(locked));
@@ -66,10 +80,8 @@ public class TileEntitySecretDispenser extends TileEntityDispenser implements IS
 	
 	@Override
 	public IBlockState getMirrorState() {
-		if(mirrorState == null && ParticleHandler.BLOCKBRAKERENDERMAP.containsKey(pos))
-			mirrorState = ParticleHandler.BLOCKBRAKERENDERMAP.get(pos);
-		if(mirrorState == null && RENDER_MAP.containsKey(pos))
-			mirrorState = ISecretTileEntity.getMap(world).get(pos);
+		if(mirrorState == null && world != null)
+			mirrorState = MirrorStateCache.get(world, pos);
 		return mirrorState;
 	}
 	
@@ -84,32 +96,31 @@ public class TileEntitySecretDispenser extends TileEntityDispenser implements IS
 	{
 		if(mirrorState.getBlock() instanceof ISecretBlock)
 			mirrorState = Blocks.STONE.getDefaultState();
-		ISecretTileEntity.getMap(world).put(this.pos, mirrorState);
 		this.mirrorState = mirrorState.getBlock().getStateFromMeta(mirrorState.getBlock().getMetaFromState(mirrorState));
+		MirrorStateCache.update(world, pos, this.mirrorState);
 	}
 	
 	@Override
 	public SPacketUpdateTileEntity getUpdatePacket() {
-		NBTTagCompound nbt = new NBTTagCompound();
-		this.writeToNBT(nbt);
 		int metadata = getBlockMetadata();
-		return new SPacketUpdateTileEntity(this.pos, metadata, nbt);
+		return new SPacketUpdateTileEntity(this.pos, metadata, getUpdateTag());
 	}
 
 	@Override
 	public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt) {
-		this.readFromNBT(pkt.getNbtCompound());
+		this.handleUpdateTag(pkt.getNbtCompound());
 	}
 
 	@Override
 	public NBTTagCompound getUpdateTag() {
-		NBTTagCompound nbt = new NBTTagCompound();
-		this.writeToNBT(nbt);
-		return nbt;
+		return ISecretTileEntity.super.writeSyncTag(new TileEntityData().setMirroredState(getMirrorStateSafely()).setLocked(locked));
 	}
 
 	@Override
 	public void handleUpdateTag(NBTTagCompound tag) {
-		this.readFromNBT(tag);
+		TileEntityData data = ISecretTileEntity.super.readSyncTag(tag);
+		mirrorState = data.getMirroredState();
+		locked = data.isLocked();
+		MirrorStateCache.update(world, pos, mirrorState);
 	}
 }
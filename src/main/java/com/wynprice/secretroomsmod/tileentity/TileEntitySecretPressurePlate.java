@@ -1,18 +1,29 @@
 package com.wynprice.secretroomsmod.tileentity;
 
-import com.wynprice.secretroomsmod.base.BaseFakePressurePlate;
+import com.wynprice.secretroomsmod.handler.SecretPressurePlateIndex;
 
 /**
- * The SRM Secret Pressure Plate tile entity
+ * The SRM Secret Pressure Plate tile entity. Dosnt tick, the plate is added to the {@link SecretPressurePlateIndex}, which wakes it up when an entity gets on or off it
  * @author Wyn Price
  *
  */
 public class TileEntitySecretPressurePlate extends TileEntityInfomationHolder
 {
 	@Override
-	public void update() 
-	{
-		((BaseFakePressurePlate)world.getBlockState(pos).getBlock()).calculateState(world, pos);
-		super.update();
+	public void onLoad() {
+		super.onLoad();
+		SecretPressurePlateIndex.add(world, pos);
+	}
+	
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		SecretPressurePlateIndex.remove(world, pos);
+	}
+	
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+		SecretPressurePlateIndex.remove(world, pos);
 	}
 }
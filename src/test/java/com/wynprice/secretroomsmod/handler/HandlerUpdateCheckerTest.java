@@ -0,0 +1,233 @@
+package com.wynprice.secretroomsmod.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpServer;
+import com.wynprice.secretroomsmod.SecretConfig;
+import com.wynprice.secretroomsmod.SecretRooms5;
+import com.wynprice.secretroomsmod.handler.HandlerUpdateChecker.UpdateResult;
+
+import net.minecraftforge.common.ForgeVersion.Status;
+import net.minecraftforge.common.MinecraftForge;
+
+/**
+ * Tests {@link HandlerUpdateChecker} against a stub server on localhost, counting the requests made to it
+ * @author Wyn Price
+ *
+ */
+public class HandlerUpdateCheckerTest
+{
+	private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final AtomicInteger hits = new AtomicInteger();
+	private volatile String response;
+	private ExecutorService executor;
+	private HttpServer server;
+	private File cacheFile;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		executor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.setExecutor(executor);
+		server.createContext("/update.json", exchange -> {
+			hits.incrementAndGet();
+			byte[] body = response.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody())
+			{
+				out.write(body);
+			}
+		});
+		//Sends whitespace one byte at a time for longer than the timeout, then the update json. Each read is well within the read timeout
+		server.createContext("/drip.json", exchange -> {
+			hits.incrementAndGet();
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream out = exchange.getResponseBody())
+			{
+				long end = System.currentTimeMillis() + HandlerUpdateChecker.TIMEOUT * 3;
+				while (System.currentTimeMillis() < end)
+				{
+					out.write(' ');
+					out.flush();
+					Thread.sleep(50);
+				}
+				out.write(response.getBytes(StandardCharsets.UTF_8));
+			}
+			catch (IOException | InterruptedException e)
+			{
+				//The checker gave up and closed the connection
+			}
+		});
+		server.start();
+		cacheFile = new File(folder.getRoot(), "update_cache.json");
+	}
+
+	@After
+	public void tearDown()
+	{
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testOutdated() throws Exception
+	{
+		response = promos("999.0.0");
+		UpdateResult result = check("/update.json");
+		assertEquals(Status.OUTDATED, result.getStatus());
+		assertEquals("999.0.0", result.getTarget().toString());
+		assertEquals("https://example.com", result.getHomepage());
+		assertEquals(1, hits.get());
+		assertEquals(response, readCache());
+	}
+
+	@Test
+	public void testUpToDate() throws Exception
+	{
+		response = promos(SecretRooms5.VERSION);
+		UpdateResult result = check("/update.json");
+		assertEquals(Status.UP_TO_DATE, result.getStatus());
+		assertNull(result.getTarget());
+		assertEquals(1, hits.get());
+		assertEquals(response, readCache());
+	}
+
+	@Test
+	public void testCacheHitMakesNoRequest() throws Exception
+	{
+		writeCache(promos(SecretRooms5.VERSION));
+		response = promos("999.0.0");
+		UpdateResult result = check("/update.json");
+		assertEquals(Status.UP_TO_DATE, result.getStatus());
+		assertEquals(0, hits.get());
+	}
+
+	@Test
+	public void testExpiredCacheDownloadsAgain() throws Exception
+	{
+		writeCache(promos(SecretRooms5.VERSION));
+		cacheFile.setLastModified(System.currentTimeMillis() - TTL * 2);
+		response = promos("999.0.0");
+		UpdateResult result = check("/update.json");
+		assertEquals(Status.OUTDATED, result.getStatus());
+		assertEquals(1, hits.get());
+		assertEquals(response, readCache());
+	}
+
+	@Test
+	public void testInvalidResponseIsNotCached() throws Exception
+	{
+		response = "<html>Not Found</html>";
+		assertNull(check("/update.json"));
+		assertEquals(1, hits.get());
+		assertFalse(cacheFile.exists());
+
+		response = "{\"homepage\":\"https://example.com\"}";
+		assertNull(check("/update.json"));
+		assertEquals(2, hits.get());
+		assertFalse(cacheFile.exists());
+	}
+
+	/**
+	 * Each read is quick, so only the deadline over the whole download stops this. Waiting for the whole response would take {@link HandlerUpdateChecker#TIMEOUT} times 3
+	 */
+	@Test
+	public void testSlowResponseTimesOut() throws Exception
+	{
+		response = promos("999.0.0");
+		assertNull(check("/drip.json"));
+		assertEquals(1, hits.get());
+		assertFalse(cacheFile.exists());
+	}
+
+	@Test
+	public void testDisabledMakesNoRequest() throws Exception
+	{
+		response = promos("999.0.0");
+		boolean updateChecker = SecretConfig.GENERAL.updateChecker;
+		try
+		{
+			SecretConfig.GENERAL.updateChecker = false;
+			assertNull(HandlerUpdateChecker.start(url("/update.json"), cacheFile));
+		}
+		finally
+		{
+			SecretConfig.GENERAL.updateChecker = updateChecker;
+		}
+		assertEquals(0, hits.get());
+		assertFalse(cacheFile.exists());
+	}
+
+	@Test
+	public void testEnabledMakesRequest() throws Exception
+	{
+		response = promos("999.0.0");
+		boolean updateChecker = SecretConfig.GENERAL.updateChecker;
+		try
+		{
+			SecretConfig.GENERAL.updateChecker = true;
+			UpdateResult result = HandlerUpdateChecker.start(url("/update.json"), cacheFile).get(HandlerUpdateChecker.TIMEOUT * 2L, TimeUnit.MILLISECONDS);
+			assertNotNull(result);
+		}
+		finally
+		{
+			SecretConfig.GENERAL.updateChecker = updateChecker;
+		}
+		assertEquals(1, hits.get());
+	}
+
+	/**
+	 * Runs the check, failing if it takes longer than {@link HandlerUpdateChecker#TIMEOUT} times 2
+	 */
+	private UpdateResult check(String path) throws Exception
+	{
+		return HandlerUpdateChecker.check(url(path), cacheFile, TTL).get(HandlerUpdateChecker.TIMEOUT * 2L, TimeUnit.MILLISECONDS);
+	}
+
+	private URL url(String path) throws IOException
+	{
+		return new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), path);
+	}
+
+	private String readCache() throws IOException
+	{
+		return new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private void writeCache(String data) throws IOException
+	{
+		Files.write(cacheFile.toPath(), data.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String promos(String recommended)
+	{
+		return "{\"homepage\":\"https://example.com\",\"promos\":{\"" + MinecraftForge.MC_VERSION + "-recommended\":\"" + recommended + "\"}}";
+	}
+}
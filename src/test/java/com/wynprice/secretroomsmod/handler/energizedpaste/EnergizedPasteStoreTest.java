@@ -0,0 +1,208 @@
+package com.wynprice.secretroomsmod.handler.energizedpaste;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Tests for {@link EnergizedPasteStore}. The stress test has one thread changing the store while others read it,
+ * and checks that the readers only ever see whole snapshots of a chunk
+ * @author Wyn Price
+ *
+ */
+public class EnergizedPasteStoreTest
+{
+	/**
+	 * The amount of positions used, all in chunk 0,0. Covers every section of the chunk
+	 */
+	private static final int POSITIONS = 4096;
+
+	private static final int READERS = 4;
+
+	private static final int ROUNDS = 10;
+
+	@Test
+	public void testPutAndRemove()
+	{
+		EnergizedPasteStore store = new EnergizedPasteStore();
+		store.put(position(0), 5, 7);
+		store.put(position(0), 6, 8);
+		store.put(position(300), 1, 2);
+		assertEquals(2, store.size());
+		assertTrue(store.contains(BlockPos.fromLong(position(0))));
+		assertTrue(store.hasPasteInSection(0, 0, 0));
+		assertTrue(store.hasPasteInSection(0, 1, 0));
+		assertFalse(store.hasPasteInSection(0, 2, 0));
+		store.forEachInChunk(0, 0, (pos, stateId, replacedStateId) -> {
+			if(pos == position(0))
+			{
+				assertEquals(6, stateId);
+				assertEquals(8, replacedStateId);
+			}
+		});
+
+		assertTrue(store.remove(BlockPos.fromLong(position(300))));
+		assertFalse(store.remove(BlockPos.fromLong(position(300))));
+		assertFalse(store.hasPasteInSection(0, 1, 0));
+		assertTrue(store.remove(BlockPos.fromLong(position(0))));
+		assertTrue(store.isEmpty());
+		assertFalse(store.hasPasteInChunk(0, 0));
+	}
+
+	/**
+	 * One thread puts every position in order and then removes them in the same order, while the readers go over the chunk.
+	 * Every snapshot a reader sees has to be one range of positions, all put in the same round
+	 */
+	@Test
+	public void testReadersSeeWholeSnapshots() throws InterruptedException
+	{
+		EnergizedPasteStore store = new EnergizedPasteStore();
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+
+		List<Thread> readers = new ArrayList<>();
+		for(int i = 0; i < READERS; i++)
+		{
+			Thread reader = new Thread(() -> {
+				try
+				{
+					while(running.get())
+						checkSnapshot(store);
+				}
+				catch (Throwable e)
+				{
+					error.compareAndSet(null, e);
+				}
+			}, "Paste Store Reader " + i);
+			reader.start();
+			readers.add(reader);
+		}
+
+		Thread writer = new Thread(() -> {
+			try
+			{
+				for(int round = 1; round <= ROUNDS && error.get() == null; round++)
+				{
+					for(int i = 0; i < POSITIONS; i++)
+						store.put(position(i), round, round);
+					for(int i = 0; i < POSITIONS; i++)
+						store.remove(BlockPos.fromLong(position(i)));
+				}
+			}
+			catch (Throwable e)
+			{
+				error.compareAndSet(null, e);
+			}
+		}, "Paste Store Writer");
+		writer.start();
+		writer.join(TimeUnit.MINUTES.toMillis(2));
+		running.set(false);
+		for(Thread reader : readers)
+			reader.join(TimeUnit.SECONDS.toMillis(10));
+
+		if(error.get() != null)
+			throw new AssertionError("Reader or writer failed", error.get());
+		assertFalse("The writer did not finish", writer.isAlive());
+		assertTrue(store.isEmpty());
+		assertFalse(store.hasPasteInChunk(0, 0));
+	}
+
+	/**
+	 * One thread keeps replacing the chunk with one of two builders, while the readers go over the chunk.
+	 * Once the chunk is first filled, every snapshot has to be the whole of one of the builders
+	 */
+	@Test
+	public void testReplaceChunkIsAtomic() throws InterruptedException
+	{
+		EnergizedPasteStore.Builder first = new EnergizedPasteStore.Builder();
+		EnergizedPasteStore.Builder second = new EnergizedPasteStore.Builder();
+		for(int i = 0; i < POSITIONS / 2; i++)
+		{
+			first.put(position(i), 1, 1);
+			second.put(position(i + POSITIONS / 2), 2, 2);
+		}
+		EnergizedPasteStore store = new EnergizedPasteStore();
+		store.replaceChunk(0, 0, first);
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+
+		List<Thread> readers = new ArrayList<>();
+		for(int i = 0; i < READERS; i++)
+		{
+			Thread reader = new Thread(() -> {
+				try
+				{
+					while(running.get())
+					{
+						int[] counts = new int[3];
+						store.forEachInChunk(0, 0, (pos, stateId, replacedStateId) -> counts[stateId]++);
+						boolean whole = (counts[1] == POSITIONS / 2 && counts[2] == 0) || (counts[1] == 0 && counts[2] == POSITIONS / 2);
+						assertTrue("Saw a partial chunk: " + counts[1] + ", " + counts[2], whole);
+						assertTrue(store.hasPasteInChunk(0, 0));
+					}
+				}
+				catch (Throwable e)
+				{
+					error.compareAndSet(null, e);
+				}
+			}, "Paste Store Reader " + i);
+			reader.start();
+			readers.add(reader);
+		}
+
+		for(int round = 0; round < ROUNDS * 20 && error.get() == null; round++)
+			store.replaceChunk(0, 0, round % 2 == 0 ? second : first);
+		running.set(false);
+		for(Thread reader : readers)
+			reader.join(TimeUnit.SECONDS.toMillis(10));
+
+		if(error.get() != null)
+			throw new AssertionError("Reader failed", error.get());
+		assertEquals(POSITIONS / 2, store.size());
+		store.replaceChunk(0, 0, new EnergizedPasteStore.Builder());
+		assertTrue(store.isEmpty());
+	}
+
+	private static void checkSnapshot(EnergizedPasteStore store)
+	{
+		BitSet seen = new BitSet(POSITIONS);
+		int[] round = {-1};
+		store.forEachInChunk(0, 0, (pos, stateId, replacedStateId) -> {
+			assertEquals("State and replaced state were torn", stateId, replacedStateId);
+			if(round[0] == -1)
+				round[0] = stateId;
+			assertEquals("A snapshot had paste from two rounds", round[0], stateId);
+			seen.set(index(pos));
+		});
+		int count = seen.cardinality();
+		if(count != 0)
+			assertEquals("A snapshot was not one range of positions", seen.length() - seen.nextSetBit(0), count);
+		int size = store.size();
+		assertTrue("Size out of range: " + size, size >= 0 && size <= POSITIONS);
+		for(int sectionY = 0; sectionY < 16; sectionY++)
+			store.hasPasteInSection(0, sectionY, 0);
+		store.contains(BlockPos.fromLong(position(POSITIONS / 2)));
+	}
+
+	private static long position(int index)
+	{
+		return new BlockPos(index & 15, index >> 4, 0).toLong();
+	}
+
+	private static int index(long position)
+	{
+		BlockPos pos = BlockPos.fromLong(position);
+		return pos.getY() << 4 | pos.getX();
+	}
+}
@@ -0,0 +1,132 @@
+package com.wynprice.secretroomsmod.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Tests {@link SecretBlockCulling}, over the region a chunk section at the origin is rendered with
+ * @author Wyn Price
+ *
+ */
+public class SecretBlockCullingTest
+{
+	/**
+	 * The render region is the section plus a one block border, like {@link net.minecraft.client.renderer.chunk.RenderChunk} makes it
+	 */
+	private static final BlockPos FROM = new BlockPos(-1, -1, -1);
+	private static final BlockPos TO = new BlockPos(16, 16, 16);
+
+	@Test
+	public void testOnlySeeThroughBlocksAreKept()
+	{
+		Long2BooleanOpenHashMap secretBlocks = new Long2BooleanOpenHashMap();
+		secretBlocks.put(new BlockPos(3, 4, 5).toLong(), true);
+		secretBlocks.put(new BlockPos(6, 7, 8).toLong(), false);
+		LongOpenHashSet positions = SecretBlockCulling.getRenderTransparentPositions(FROM, TO, secretBlocks);
+		assertEquals(1, positions.size());
+		assertTrue(positions.contains(new BlockPos(3, 4, 5).toLong()));
+	}
+
+	/**
+	 * The neighbours in the border at -1 and 16 are inside the region, as the faces of the blocks at the edge of the section need them
+	 */
+	@Test
+	public void testBorderIsInsideRegion()
+	{
+		Long2BooleanOpenHashMap secretBlocks = new Long2BooleanOpenHashMap();
+		BlockPos[] border = {
+				new BlockPos(-1, 5, 5), new BlockPos(16, 5, 5),
+				new BlockPos(5, -1, 5), new BlockPos(5, 16, 5),
+				new BlockPos(5, 5, -1), new BlockPos(5, 5, 16),
+				new BlockPos(-1, -1, -1), new BlockPos(16, 16, 16)
+		};
+		for(BlockPos pos : border)
+			secretBlocks.put(pos.toLong(), true);
+		LongOpenHashSet positions = SecretBlockCulling.getRenderTransparentPositions(FROM, TO, secretBlocks);
+		assertEquals(border.length, positions.size());
+		for(BlockPos pos : border)
+			assertTrue(pos.toString(), positions.contains(pos.toLong()));
+	}
+
+	/**
+	 * The secret blocks are found by chunk column, so ones just outside the region on every axis have to be left out
+	 */
+	@Test
+	public void testOutsideRegionIsIgnored()
+	{
+		Long2BooleanOpenHashMap secretBlocks = new Long2BooleanOpenHashMap();
+		BlockPos[] outside = {
+				new BlockPos(-2, 5, 5), new BlockPos(17, 5, 5),
+				new BlockPos(5, -2, 5), new BlockPos(5, 17, 5),
+				new BlockPos(5, 5, -2), new BlockPos(5, 5, 17),
+				new BlockPos(5, 100, 5)
+		};
+		for(BlockPos pos : outside)
+			secretBlocks.put(pos.toLong(), true);
+		assertTrue(SecretBlockCulling.getRenderTransparentPositions(FROM, TO, secretBlocks).isEmpty());
+	}
+
+	/**
+	 * For every face of a block, each combination of the vanilla result and the neighbour on that face being see-through
+	 */
+	@Test
+	public void testShouldSideBeRenderedAllFaces()
+	{
+		BlockPos pos = new BlockPos(5, 5, 5);
+		for(EnumFacing face : EnumFacing.values())
+		{
+			Long2BooleanOpenHashMap secretBlocks = new Long2BooleanOpenHashMap();
+			secretBlocks.put(pos.offset(face).toLong(), true);
+			//A see-through block on the opposite face shouldnt change this face
+			secretBlocks.put(pos.offset(face.getOpposite()).toLong(), false);
+			LongOpenHashSet seeThrough = SecretBlockCulling.getRenderTransparentPositions(FROM, TO, secretBlocks);
+			secretBlocks.put(pos.offset(face).toLong(), false);
+			secretBlocks.put(pos.offset(face.getOpposite()).toLong(), true);
+			LongOpenHashSet solid = SecretBlockCulling.getRenderTransparentPositions(FROM, TO, secretBlocks);
+
+			assertTrue(face.toString(), SecretBlockCulling.shouldSideBeRendered(true, pos, face, seeThrough));
+			assertTrue(face.toString(), SecretBlockCulling.shouldSideBeRendered(true, pos, face, solid));
+			assertTrue(face.toString(), SecretBlockCulling.shouldSideBeRendered(false, pos, face, seeThrough));
+			assertFalse(face.toString(), SecretBlockCulling.shouldSideBeRendered(false, pos, face, solid));
+			assertFalse(face.toString(), SecretBlockCulling.shouldSideBeRendered(false, pos, face, new LongOpenHashSet()));
+		}
+	}
+
+	/**
+	 * The blocks at the edge of the section look at the border of the region for their neighbours
+	 */
+	@Test
+	public void testShouldSideBeRenderedAtSectionEdge()
+	{
+		Long2BooleanOpenHashMap secretBlocks = new Long2BooleanOpenHashMap();
+		for(EnumFacing face : EnumFacing.values())
+			secretBlocks.put(edge(face).offset(face).toLong(), true);
+		LongOpenHashSet positions = SecretBlockCulling.getRenderTransparentPositions(FROM, TO, secretBlocks);
+		for(EnumFacing face : EnumFacing.values())
+		{
+			assertTrue(face.toString(), SecretBlockCulling.shouldSideBeRendered(false, edge(face), face, positions));
+			assertFalse(face.toString(), SecretBlockCulling.shouldSideBeRendered(false, edge(face), face.getOpposite(), positions));
+		}
+	}
+
+	/**
+	 * @return the block in the middle of the sections side facing {@code face}
+	 */
+	private static BlockPos edge(EnumFacing face)
+	{
+		return new BlockPos(edge(face.getFrontOffsetX()), edge(face.getFrontOffsetY()), edge(face.getFrontOffsetZ()));
+	}
+
+	private static int edge(int offset)
+	{
+		return offset > 0 ? 15 : offset < 0 ? 0 : 8;
+	}
+}
@@ -0,0 +1,56 @@
+package com.wynprice.secretroomsmod.render.fakemodels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.util.EnumFacing;
+
+/**
+ * Tests that {@link SRMBakedQuadRetextured} gives the same quads as {@link LegacySRMBakedQuadRetextured}
+ * @author Wyn Price
+ *
+ */
+public class SRMBakedQuadRetexturedTest
+{
+	@Test
+	public void testSameAsLegacy()
+	{
+		TextureAtlasSprite modelSprite = SyntheticQuads.sprite("test:model", 0, 0);
+		TextureAtlasSprite textureSprite = SyntheticQuads.sprite("test:texture", 32, 48);
+		List<BakedQuad> modelQuads = SyntheticQuads.allQuads(modelSprite);
+		List<BakedQuad> textureQuads = SyntheticQuads.allQuads(textureSprite);
+		for(BakedQuad modelQuad : modelQuads)
+			for(BakedQuad textureQuad : textureQuads)
+				for(EnumFacing side : new EnumFacing[] {null, modelQuad.getFace()})
+				{
+					BakedQuad legacy = new LegacySRMBakedQuadRetextured(modelQuad, textureQuad, side);
+					BakedQuad quad = new SRMBakedQuadRetextured(modelQuad, textureQuad, side);
+					String message = modelQuads.indexOf(modelQuad) + " retextured with " + textureQuads.indexOf(textureQuad) + " on side " + side;
+					assertArrayEquals(message, legacy.getVertexData(), quad.getVertexData());
+					assertEquals(message, legacy.getFace(), quad.getFace());
+					assertEquals(message, legacy.getTintIndex(), quad.getTintIndex());
+					assertSame(message, legacy.getSprite(), quad.getSprite());
+				}
+	}
+
+	/**
+	 * The bounds are cached per quad, so making the same quad twice has to give the same vertex data
+	 */
+	@Test
+	public void testCachedBoundsAreStable()
+	{
+		TextureAtlasSprite sprite = SyntheticQuads.sprite("test:model", 0, 0);
+		BakedQuad modelQuad = SyntheticQuads.quad(SyntheticQuads.BOXES[1][0], SyntheticQuads.BOXES[1][1], EnumFacing.NORTH, sprite);
+		BakedQuad textureQuad = SyntheticQuads.quad(SyntheticQuads.BOXES[0][0], SyntheticQuads.BOXES[0][1], EnumFacing.NORTH, sprite);
+		int[] first = new SRMBakedQuadRetextured(modelQuad, textureQuad, EnumFacing.NORTH).getVertexData();
+		int[] second = new SRMBakedQuadRetextured(modelQuad, textureQuad, EnumFacing.NORTH).getVertexData();
+		assertArrayEquals(first, second);
+	}
+}
@@ -0,0 +1,98 @@
+package com.wynprice.secretroomsmod.render.fakemodels;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.ResourceLocation;
+
+/**
+ * Makes quads without needing the models or the texture map loaded. The vertices are in the same order as vanillas,
+ * so {@link net.minecraft.client.renderer.block.model.FaceBakery#getFacingFromVertexData(int[])} gets the right face from them
+ * @author Wyn Price
+ *
+ */
+public class SyntheticQuads
+{
+	/**
+	 * For each face (by {@link EnumFacing#getIndex()}), if each vertex uses the max x, y and z
+	 */
+	private static final boolean[][][] CORNERS = {
+			{{false, false, true}, {false, false, false}, {true, false, false}, {true, false, true}}, //DOWN
+			{{false, true, false}, {false, true, true}, {true, true, true}, {true, true, false}}, //UP
+			{{true, true, false}, {true, false, false}, {false, false, false}, {false, true, false}}, //NORTH
+			{{false, true, true}, {false, false, true}, {true, false, true}, {true, true, true}}, //SOUTH
+			{{false, true, false}, {false, false, false}, {false, false, true}, {false, true, true}}, //WEST
+			{{true, true, true}, {true, false, true}, {true, false, false}, {true, true, false}} //EAST
+	};
+
+	/**
+	 * The boxes used for the model quads, in pixels. A full block, both slabs, a stair step, a button and a pane
+	 */
+	public static final float[][][] BOXES = {
+			{{0, 0, 0}, {16, 16, 16}},
+			{{0, 0, 0}, {16, 8, 16}},
+			{{0, 8, 0}, {16, 16, 16}},
+			{{0, 8, 8}, {16, 16, 16}},
+			{{5, 0, 6}, {11, 2, 10}},
+			{{7, 0, 0}, {9, 16, 16}}
+	};
+
+	/**
+	 * Makes a 16x16 sprite in a 256x256 texture map
+	 * @param name the sprites name
+	 * @param originX the x position of the sprite in the texture map
+	 * @param originY the y position of the sprite in the texture map
+	 * @return the sprite
+	 */
+	public static TextureAtlasSprite sprite(String name, int originX, int originY)
+	{
+		TextureAtlasSprite sprite = TextureAtlasSprite.makeAtlasSprite(new ResourceLocation(name));
+		sprite.setIconWidth(16);
+		sprite.setIconHeight(16);
+		sprite.initSprite(256, 256, originX, originY, false);
+		return sprite;
+	}
+
+	/**
+	 * Makes the quad for one face of a box. The uvs are worked out from the position, like a model face with no uv set
+	 * @param from the min corner of the box, in pixels
+	 * @param to the max corner of the box, in pixels
+	 * @param face the face of the box
+	 * @param sprite the sprite used for the uvs
+	 * @return the quad
+	 */
+	public static BakedQuad quad(float[] from, float[] to, EnumFacing face, TextureAtlasSprite sprite)
+	{
+		int[] vertexData = new int[28];
+		int uAxis = face.getAxis() == EnumFacing.Axis.X ? 2 : 0;
+		int vAxis = face.getAxis() == EnumFacing.Axis.Y ? 2 : 1;
+		boolean[][] corners = CORNERS[face.getIndex()];
+		for(int i = 0; i < 4; i++)
+		{
+			int pos = 7 * i;
+			for(int axis = 0; axis < 3; axis++)
+				vertexData[pos + axis] = Float.floatToRawIntBits((corners[i][axis] ? to[axis] : from[axis]) / 16f);
+			vertexData[pos + 3] = -1;
+			vertexData[pos + 4] = Float.floatToRawIntBits(sprite.getInterpolatedU(i == 0 || i == 1 ? from[uAxis] : to[uAxis]));
+			vertexData[pos + 5] = Float.floatToRawIntBits(sprite.getInterpolatedV(i == 0 || i == 3 ? from[vAxis] : to[vAxis]));
+		}
+		return new BakedQuad(vertexData, -1, face, sprite, true, DefaultVertexFormats.ITEM);
+	}
+
+	/**
+	 * @param sprite the sprite used for the uvs
+	 * @return the quads for every face of every box in {@link #BOXES}
+	 */
+	public static List<BakedQuad> allQuads(TextureAtlasSprite sprite)
+	{
+		List<BakedQuad> quads = new ArrayList<>();
+		for(float[][] box : BOXES)
+			for(EnumFacing face : EnumFacing.VALUES)
+				quads.add(quad(box[0], box[1], face, sprite));
+		return quads;
+	}
+}